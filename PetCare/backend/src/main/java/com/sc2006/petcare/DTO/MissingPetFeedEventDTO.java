@@ -0,0 +1,18 @@
+package com.sc2006.petcare.DTO;
+
+import java.util.Date;
+
+import lombok.Data;
+
+/* One entry of the live missing pet feed, kept small so clients fetch details only for what they show */
+@Data
+public class MissingPetFeedEventDTO {
+    // "reported", "found" or "sighting"
+    private String type;
+    private String missingId;
+    private String sightingId;
+    private String description;
+    private double latitude;
+    private double longitude;
+    private Date time;
+}
@@ -0,0 +1,12 @@
+package com.sc2006.petcare.DTO;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class MissingPetPageDTO {
+    private List<MissingPetDTO> missingPets;
+    // Opaque cursor for the next page, null on the last page
+    private String nextCursor;
+}
@@ -1,5 +1,9 @@
 package com.sc2006.petcare.DTO;
 import java.util.List;
+import java.util.Map;
+
+import com.sc2006.petcare.models.PetcareAmenityModel;
+import com.sc2006.petcare.utils.WeeklySchedule;
 
 import lombok.Data;
 
@@ -8,7 +12,9 @@ public class PlaceDetailsDTO {
     private String id;
     private String name;
     private double rating;
-    private String photoBase64;
+    private String photoUrl;
+    // Thumbnail URL per size (pin, card, detail)
+    private Map<String, String> photoUrls;
     private boolean openNow;
     private String vicinity;
     private double latitude;
@@ -16,12 +22,14 @@ public class PlaceDetailsDTO {
     private String phoneNumber;
     private String website;
     private List<PlaceOpeningHoursDTO> openingHours;
+    private List<Integer> openingIntervals;
+    private Integer utcOffsetMinutes;
 
-    public PlaceDetailsDTO(String id, String name, double rating, String photoBase64, boolean openNow, String vicinity, double latitude, double longitude, String phoneNumber, String website, List<PlaceOpeningHoursDTO> openingHours) {
+    public PlaceDetailsDTO(String id, String name, double rating, String photoUrl, boolean openNow, String vicinity, double latitude, double longitude, String phoneNumber, String website, List<PlaceOpeningHoursDTO> openingHours) {
         this.id = id;
         this.name = name;
         this.rating = rating;
-        this.photoBase64 = photoBase64;
+        this.photoUrl = photoUrl;
         this.openNow = openNow;
         this.vicinity = vicinity;
         this.latitude = latitude;
@@ -30,4 +38,21 @@ public class PlaceDetailsDTO {
         this.website = website;
         this.openingHours = openingHours;
     }
-}
\ No newline at end of file
+
+    // Build the response shape from a stored amenity, evaluating open now against its schedule
+    public static PlaceDetailsDTO fromAmenity(PetcareAmenityModel amenity) {
+        boolean openNow = amenity.isOpenNow();
+        if (amenity.getOpeningIntervals() != null) {
+            openNow = new WeeklySchedule(amenity.getOpeningIntervals(), amenity.getUtcOffsetMinutes()).isOpenNow();
+        }
+        PlaceDetailsDTO placeDetailsDTO = new PlaceDetailsDTO(amenity.getAmenityId(), amenity.getAmenityName(),
+                amenity.getRating(), amenity.getPhoto(), openNow, amenity.getAddress(),
+                amenity.getLatitude() != null ? amenity.getLatitude() : 0,
+                amenity.getLongitude() != null ? amenity.getLongitude() : 0,
+                amenity.getContactNumber(), amenity.getWebsiteURL(), amenity.getOpeningHours());
+        placeDetailsDTO.setOpeningIntervals(amenity.getOpeningIntervals());
+        placeDetailsDTO.setUtcOffsetMinutes(amenity.getUtcOffsetMinutes());
+        placeDetailsDTO.setPhotoUrls(amenity.getPhotoUrls());
+        return placeDetailsDTO;
+    }
+}
@@ -0,0 +1,12 @@
+package com.sc2006.petcare.DTO;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class PlaceSearchPageDTO {
+    private List<PlaceSearchResultDTO> results;
+    private String nextPageToken;
+    private String status;
+}
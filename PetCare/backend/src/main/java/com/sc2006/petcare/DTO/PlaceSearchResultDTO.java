@@ -0,0 +1,15 @@
+package com.sc2006.petcare.DTO;
+
+import lombok.Data;
+
+@Data
+public class PlaceSearchResultDTO {
+    private String placeId;
+    private String name;
+    private double rating;
+    private String vicinity;
+    private double latitude;
+    private double longitude;
+    private String photoReference;
+    private boolean openNow;
+}
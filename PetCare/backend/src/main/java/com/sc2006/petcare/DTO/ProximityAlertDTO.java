@@ -0,0 +1,15 @@
+package com.sc2006.petcare.DTO;
+
+import java.util.Date;
+
+import lombok.Data;
+
+@Data
+public class ProximityAlertDTO {
+    private String missingId;
+    private String petName;
+    private String lastSeenDescription;
+    private double latitude;
+    private double longitude;
+    private Date lastSeenDateTime;
+}
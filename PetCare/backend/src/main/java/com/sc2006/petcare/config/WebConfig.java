@@ -13,6 +13,7 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOrigins("http://10.91.144.154:8080")
                 .allowedMethods("GET", "POST", "PUT", "DELETE") // Allowed methods
                 .allowedHeaders("*") // Allow all headers
+                .exposedHeaders("X-Next-Cursor") // Pagination cursor for missing pets
                 .allowCredentials(true); // Allow credentials
     }
 }
@@ -0,0 +1,114 @@
+package com.sc2006.petcare.controllers;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.sc2006.petcare.services.AmenityTtlSweeper;
+import com.sc2006.petcare.services.ExecutorRegistry;
+import com.sc2006.petcare.services.LocationIdMigrationService;
+import com.sc2006.petcare.services.MissingPetEventBus;
+import com.sc2006.petcare.services.MissingPetGeohashBackfillService;
+import com.sc2006.petcare.services.ProximityAlertService;
+import com.sc2006.petcare.services.UserHomeLocationService;
+
+@RestController
+@RequestMapping(value = "api/admin")
+public class AdminController {
+    @Autowired
+    private AmenityTtlSweeper amenityTtlSweeper;
+
+    @Autowired
+    private LocationIdMigrationService locationIdMigrationService;
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    @Autowired
+    private MissingPetGeohashBackfillService missingPetGeohashBackfillService;
+
+    @Autowired
+    private MissingPetEventBus missingPetEventBus;
+
+    @Autowired
+    private ProximityAlertService proximityAlertService;
+
+    @Autowired
+    private UserHomeLocationService userHomeLocationService;
+
+    @RequestMapping(value = "/sweeper", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> getSweeperStatus() {
+        return amenityTtlSweeper.stats();
+    }
+
+    @RequestMapping(value = "/sweeper/pause", method = RequestMethod.POST, produces = "application/json")
+    public Map<String, Object> pauseSweeper() {
+        amenityTtlSweeper.pause();
+        return amenityTtlSweeper.stats();
+    }
+
+    @RequestMapping(value = "/sweeper/resume", method = RequestMethod.POST, produces = "application/json")
+    public Map<String, Object> resumeSweeper() {
+        amenityTtlSweeper.resume();
+        return amenityTtlSweeper.stats();
+    }
+
+    // Queue depth, active threads and latency for each named pool
+    @RequestMapping(value = "/executors", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> getExecutorStats() {
+        return executorRegistry.stats();
+    }
+
+    // Live missing pet feed subscribers, buffers and evictions
+    @RequestMapping(value = "/missing-stream", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> getMissingStreamStats() {
+        return missingPetEventBus.stats();
+    }
+
+    // Proximity alert fan-out counters and geocoding cache
+    @RequestMapping(value = "/alerts", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> getAlertStats() {
+        return proximityAlertService.stats();
+    }
+
+    // One-off: re-key Location documents to coordinate-derived IDs
+    @RequestMapping(value = "/migrations/location-ids", method = RequestMethod.POST, produces = "application/json")
+    public ResponseEntity<?> migrateLocationIds() {
+        try {
+            return ResponseEntity.ok(locationIdMigrationService.migrate());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Location migration failed: " + e.getMessage());
+        }
+    }
+
+    // One-off: add geohashes, and the active flag on sightings, to documents written before nearby search
+    @RequestMapping(value = "/migrations/missing-geohashes", method = RequestMethod.POST, produces = "application/json")
+    public ResponseEntity<?> backfillMissingPetGeohashes() {
+        try {
+            return ResponseEntity.ok(missingPetGeohashBackfillService.backfill());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Geohash backfill failed: " + e.getMessage());
+        }
+    }
+
+    // Geocode the addresses of users registered before proximity alerts, or changed since
+    @RequestMapping(value = "/migrations/user-home-locations", method = RequestMethod.POST, produces = "application/json")
+    public ResponseEntity<?> backfillUserHomeLocations() {
+        try {
+            return ResponseEntity.ok(userHomeLocationService.backfill());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Home location backfill failed: " + e.getMessage());
+        }
+    }
+}
@@ -1,17 +1,38 @@
 package com.sc2006.petcare.controllers;
 
+import java.io.BufferedInputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.sc2006.petcare.DTO.PlaceDetailsDTO;
+import com.sc2006.petcare.services.AmenitySpatialIndex;
+import com.sc2006.petcare.services.GoogleMapsMetrics;
 import com.sc2006.petcare.services.GoogleMapsService;
+import com.sc2006.petcare.services.MapsCircuitBreaker;
+import com.sc2006.petcare.services.PhotoThumbnailService;
+import com.sc2006.petcare.services.PlacePhotoService;
+import com.sc2006.petcare.services.PlacesQuotaGovernor;
 
 @CrossOrigin(origins = "http://10.91.144.154:8081")
 @RestController
@@ -20,6 +41,24 @@ public class GoogleMapsController {
     @Autowired
     private GoogleMapsService googleMapsService;
 
+    @Autowired
+    private GoogleMapsMetrics googleMapsMetrics;
+
+    @Autowired
+    private PlacePhotoService placePhotoService;
+
+    @Autowired
+    private AmenitySpatialIndex amenitySpatialIndex;
+
+    @Autowired
+    private PhotoThumbnailService photoThumbnailService;
+
+    @Value("${petcare.amenity.local.max-radius-m:50000}")
+    private int maxLocalRadiusMetres;
+
+    @Value("${petcare.amenity.local.max-results:200}")
+    private int maxLocalResults;
+
     @RequestMapping(value = "/getNearbyByTypes", method = RequestMethod.GET, produces = "application/json")
     public List<PlaceDetailsDTO> getNearbyPetCareByTypes(
             @RequestParam double latitude,
@@ -34,6 +73,39 @@ public class GoogleMapsController {
         }
     }
 
+    // Same search as getNearbyByTypes, streamed as Server-Sent Events: one "places" event per page, then "done"
+    @RequestMapping(value = "/streamNearbyByTypes", method = RequestMethod.GET, produces = "text/event-stream")
+    public SseEmitter streamNearbyPetCareByTypes(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "1000") int radius,
+            @RequestParam(defaultValue = "veterinary_care") List<String> type,
+            @RequestParam(defaultValue = "3") int maxPages) {
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(60));
+        googleMapsService.streamNearbyPetCare(latitude, longitude, radius, type, maxPages, places -> {
+            // Pages for different keywords complete on different threads
+            synchronized (emitter) {
+                emitter.send(SseEmitter.event().name("places").data(places, MediaType.APPLICATION_JSON));
+            }
+        }).whenComplete((done, error) -> {
+            synchronized (emitter) {
+                try {
+                    if (error != null) {
+                        System.err.println("Error occurred while streaming nearby pet care: " + error.getMessage());
+                        emitter.send(SseEmitter.event().name("error").data("Search failed"));
+                    } else {
+                        emitter.send(SseEmitter.event().name("done").data("done"));
+                    }
+                    emitter.complete();
+                } catch (Exception e) {
+                    // Client went away
+                    emitter.completeWithError(e);
+                }
+            }
+        });
+        return emitter;
+    }
+
     @RequestMapping(value = "/filterLocations", method = RequestMethod.GET, produces = "application/json")
     public List<String> filterLocations(
             @RequestParam List<String> placeIds,
@@ -61,4 +133,117 @@ public class GoogleMapsController {
             return new ArrayList<>(); // Return empty list in case of error
         }
     }
+
+    // Stored amenities around a point, answered from the in-memory index without calling Google
+    @RequestMapping(value = "/local", method = RequestMethod.GET, produces = "application/json")
+    public ResponseEntity<?> searchLocal(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "1000") int radius,
+            @RequestParam(required = false) Double minRating,
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (!validPoint(latitude, longitude) || radius <= 0 || radius > maxLocalRadiusMetres) {
+            return ResponseEntity.badRequest().body("radius must be between 1 and " + maxLocalRadiusMetres);
+        }
+        return ResponseEntity.ok(amenitySpatialIndex.withinRadius(latitude, longitude, radius, minRating, type,
+                clampLocalLimit(limit)));
+    }
+
+    @RequestMapping(value = "/local/bounds", method = RequestMethod.GET, produces = "application/json")
+    public ResponseEntity<?> searchLocalBounds(
+            @RequestParam double minLatitude,
+            @RequestParam double minLongitude,
+            @RequestParam double maxLatitude,
+            @RequestParam double maxLongitude,
+            @RequestParam(required = false) Double minRating,
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (!validPoint(minLatitude, minLongitude) || !validPoint(maxLatitude, maxLongitude)
+                || minLatitude > maxLatitude || minLongitude > maxLongitude) {
+            return ResponseEntity.badRequest().body("Invalid bounds");
+        }
+        return ResponseEntity.ok(amenitySpatialIndex.withinBounds(minLatitude, minLongitude, maxLatitude,
+                maxLongitude, minRating, type, clampLocalLimit(limit)));
+    }
+
+    private int clampLocalLimit(int limit) {
+        return Math.max(1, Math.min(limit, maxLocalResults));
+    }
+
+    private static boolean validPoint(double latitude, double longitude) {
+        return Math.abs(latitude) <= 90 && Math.abs(longitude) <= 180;
+    }
+
+    // Raw image bytes for a Places photo reference, streamed from the on-disk cache
+    @RequestMapping(value = "/photo/{photoRef}", method = RequestMethod.GET)
+    public ResponseEntity<Resource> getPhoto(@PathVariable String photoRef, WebRequest request) {
+        if (!placePhotoService.isKnown(photoRef)) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = placePhotoService.etagFor(photoRef);
+        if (request.checkNotModified(etag)) {
+            return null; // 304 Not Modified already written
+        }
+        try {
+            // Streamed from an already open file, so a concurrent eviction can't cut the body short
+            BufferedInputStream photo = placePhotoService.openPhoto(photoRef);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(7, TimeUnit.DAYS).cachePublic())
+                    .eTag(etag)
+                    .contentType(MediaType.parseMediaType(placePhotoService.contentType(photo)))
+                    .body(new InputStreamResource(photo));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (PlacesQuotaGovernor.QuotaExceededException | MapsCircuitBreaker.CircuitOpenException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            System.err.println("Error occurred while fetching place photo: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
+        }
+    }
+
+    // One size of a place photo, resized on demand if the background pipeline hasn't processed it yet
+    @RequestMapping(value = "/photo/{photoRef}/{size}", method = RequestMethod.GET)
+    public ResponseEntity<Resource> getPhotoVariant(@PathVariable String photoRef, @PathVariable String size) {
+        PhotoThumbnailService.Size thumbnailSize;
+        try {
+            thumbnailSize = PhotoThumbnailService.Size.parse(size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            Path thumbnail = photoThumbnailService.getVariant(photoRef, thumbnailSize);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(7, TimeUnit.DAYS).cachePublic())
+                    .eTag("\"" + thumbnail.getFileName().toString().replace(".jpg", "") + "\"")
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .body(new FileSystemResource(thumbnail));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (PlacesQuotaGovernor.QuotaExceededException | MapsCircuitBreaker.CircuitOpenException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            System.err.println("Error occurred while resizing place photo: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
+        }
+    }
+
+    // Processed thumbnails are named by their content hash, so they never change
+    @RequestMapping(value = "/thumbnail/{fileName}", method = RequestMethod.GET)
+    public ResponseEntity<Resource> getThumbnail(@PathVariable String fileName) {
+        Path thumbnail = photoThumbnailService.getThumbnail(fileName);
+        if (thumbnail == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .contentType(MediaType.IMAGE_JPEG)
+                .body(new FileSystemResource(thumbnail));
+    }
+
+    @RequestMapping(value = "/metrics", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> getMetrics() {
+        return googleMapsMetrics.snapshot();
+    }
 }
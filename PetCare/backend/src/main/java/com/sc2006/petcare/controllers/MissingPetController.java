@@ -1,8 +1,7 @@
 package com.sc2006.petcare.controllers;
 
-import java.util.List;
-
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.ModelAttribute;
@@ -10,10 +9,14 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.sc2006.petcare.DTO.MissingPetDTO;
 import com.sc2006.petcare.DTO.MissingPetInputDTO;
+import com.sc2006.petcare.DTO.MissingPetPageDTO;
+import com.sc2006.petcare.services.MissingPetEventBus;
 import com.sc2006.petcare.services.MissingPetService;
 
 @CrossOrigin(origins = "http://10.91.144.154:8080")
@@ -23,10 +26,57 @@ public class MissingPetController {
     @Autowired
     MissingPetService missingPetService;
 
-    // change to get all ACTIVE pets DONE
+    @Autowired
+    MissingPetEventBus missingPetEventBus;
+
+    // Active pets, newest first; the cursor for the next page is returned in X-Next-Cursor
     @RequestMapping(value = "/getAllMissingPets", method = RequestMethod.GET, produces = "application/json")
-    public List<MissingPetDTO> getAllMissingPets() {
-        return missingPetService.getAllMissingPets();
+    public ResponseEntity<?> getAllMissingPets(
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String cursor) {
+        MissingPetPageDTO page;
+        try {
+            page = missingPetService.getAllMissingPets(pageSize, cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid cursor");
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header("X-Next-Cursor", page.getNextCursor());
+        }
+        return response.body(page.getMissingPets());
+    }
+
+    // Active pets last seen within radiusKm of the point, newest first
+    @RequestMapping(value = "/getMissingPetsNearby", method = RequestMethod.GET, produces = "application/json")
+    public ResponseEntity<?> getMissingPetsNearby(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "5") double radiusKm,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(missingPetService.getMissingPetsNearby(latitude, longitude, radiusKm, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Live "reported", "found" and "sighting" events as Server-Sent Events, optionally only within radiusKm of a point
+    @RequestMapping(value = "/stream", method = RequestMethod.GET, produces = "text/event-stream")
+    public ResponseEntity<SseEmitter> streamMissingPets(
+            @RequestParam(required = false) Double latitude,
+            @RequestParam(required = false) Double longitude,
+            @RequestParam(required = false) Double radiusKm) {
+        boolean anyRegion = latitude != null || longitude != null || radiusKm != null;
+        boolean fullRegion = latitude != null && longitude != null && radiusKm != null;
+        if (anyRegion && (!fullRegion || radiusKm <= 0)) {
+            return ResponseEntity.badRequest().build();
+        }
+        SseEmitter emitter = missingPetEventBus.subscribe(latitude, longitude, radiusKm);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
     }
 
     // get selected missing pet
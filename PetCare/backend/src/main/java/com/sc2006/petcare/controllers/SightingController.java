@@ -3,11 +3,13 @@ package com.sc2006.petcare.controllers;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.sc2006.petcare.DTO.SightingDTO;
@@ -26,6 +28,20 @@ public class SightingController {
         return sightingService.getAllSightings();
     }
 
+    // Sightings of active missing pets within radiusKm of the point, newest first
+    @RequestMapping(value = "/getSightingsNearby", method = RequestMethod.GET, produces = "application/json")
+    public ResponseEntity<?> getSightingsNearby(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "5") double radiusKm,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(sightingService.getSightingsNearby(latitude, longitude, radiusKm, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @PostMapping(value = "/addSighting", consumes = { "multipart/form-data" })
     public String addSighting(@ModelAttribute SightingInputDTO sightingInputDTO) {
         return sightingService.addSighting(sightingInputDTO);
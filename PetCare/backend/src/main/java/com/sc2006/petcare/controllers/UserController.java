@@ -52,6 +52,12 @@ public class UserController {
         return userService.updateUser(articleDetailsUpdateDTO, userId);
     }
 
+    // Register the device that should receive missing pet alerts
+    @PutMapping(value = "/updatePushToken/{userId}")
+    public String updatePushToken(@PathVariable String userId, @RequestParam String pushToken) {
+        return userService.updatePushToken(userId, pushToken.isBlank() ? null : pushToken);
+    }
+
     // @PutMapping(value = "/updateUserDetails", produces = "application/json")
     // public String updateUser(@RequestBody UserDetailsUpdateDTO
     // userDetailsUpdateDTO) {
@@ -0,0 +1,16 @@
+package com.sc2006.petcare.events;
+
+import com.sc2006.petcare.models.MissingPetModel;
+
+/* Published by MissingPetRepository after a missing pet report is marked as found */
+public class MissingPetFoundEvent {
+    private final MissingPetModel missingPet;
+
+    public MissingPetFoundEvent(MissingPetModel missingPet) {
+        this.missingPet = missingPet;
+    }
+
+    public MissingPetModel getMissingPet() {
+        return missingPet;
+    }
+}
@@ -0,0 +1,16 @@
+package com.sc2006.petcare.events;
+
+import com.sc2006.petcare.models.MissingPetModel;
+
+/* Published by MissingPetRepository after a new missing pet report is stored */
+public class MissingPetReportedEvent {
+    private final MissingPetModel missingPet;
+
+    public MissingPetReportedEvent(MissingPetModel missingPet) {
+        this.missingPet = missingPet;
+    }
+
+    public MissingPetModel getMissingPet() {
+        return missingPet;
+    }
+}
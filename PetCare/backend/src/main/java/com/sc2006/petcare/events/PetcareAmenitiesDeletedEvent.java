@@ -0,0 +1,16 @@
+package com.sc2006.petcare.events;
+
+import java.util.List;
+
+/* Published by PetcareAmenityRepository after amenity documents are deleted */
+public class PetcareAmenitiesDeletedEvent {
+    private final List<String> amenityIds;
+
+    public PetcareAmenitiesDeletedEvent(List<String> amenityIds) {
+        this.amenityIds = amenityIds;
+    }
+
+    public List<String> getAmenityIds() {
+        return amenityIds;
+    }
+}
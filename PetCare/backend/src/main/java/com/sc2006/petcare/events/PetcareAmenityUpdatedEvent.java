@@ -0,0 +1,16 @@
+package com.sc2006.petcare.events;
+
+import com.sc2006.petcare.models.PetcareAmenityModel;
+
+/* Published by PetcareAmenityRepository whenever an amenity document is written */
+public class PetcareAmenityUpdatedEvent {
+    private final PetcareAmenityModel amenity;
+
+    public PetcareAmenityUpdatedEvent(PetcareAmenityModel amenity) {
+        this.amenity = amenity;
+    }
+
+    public PetcareAmenityModel getAmenity() {
+        return amenity;
+    }
+}
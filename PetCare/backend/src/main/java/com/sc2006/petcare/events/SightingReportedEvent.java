@@ -0,0 +1,16 @@
+package com.sc2006.petcare.events;
+
+import com.sc2006.petcare.models.SightingModel;
+
+/* Published by SightingRepository after a new sighting is stored */
+public class SightingReportedEvent {
+    private final SightingModel sighting;
+
+    public SightingReportedEvent(SightingModel sighting) {
+        this.sighting = sighting;
+    }
+
+    public SightingModel getSighting() {
+        return sighting;
+    }
+}
@@ -21,6 +21,8 @@ public class MissingPetModel {
     private String lastSeenImage;
     private String lastSeenDescription;
     private GeoPoint lastSeenLocation;
+    // Geohash of lastSeenLocation, for prefix range queries by area
+    private String geohash;
 
     @JsonIgnore
     private DocumentReference missingPet;
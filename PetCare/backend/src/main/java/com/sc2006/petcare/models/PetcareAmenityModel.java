@@ -2,6 +2,7 @@ package com.sc2006.petcare.models;
 
 import lombok.Data;
 import java.util.List;
+import java.util.Map;
 import java.util.Date;
 
 import com.google.cloud.firestore.DocumentReference;
@@ -14,10 +15,21 @@ public class PetcareAmenityModel {
     private String amenityName;
     private boolean openNow;
     private List<PlaceOpeningHoursDTO> openingHours;
+    // Sorted [start, end) minute-of-week pairs compiled from openingHours, see WeeklySchedule
+    private List<Integer> openingIntervals;
+    private Integer utcOffsetMinutes;
     private String contactNumber;
     private String websiteURL;
     private double rating;
     private String photo;
+    private Map<String, String> photoUrls;
     private DocumentReference location;
     private Date timestamp;
+    // Denormalized from the Location document so area searches need no join
+    private Double latitude;
+    private Double longitude;
+    private String address;
+    private String geohash;
+    // Search keywords that returned this place; a map so merged writes add keys instead of replacing
+    private Map<String, Boolean> categories;
 }
\ No newline at end of file
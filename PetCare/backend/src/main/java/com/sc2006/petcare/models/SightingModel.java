@@ -15,6 +15,10 @@ public class SightingModel {
     private String sightingDescription;
     private String sightingImage;
     private GeoPoint sightingLocation;
+    // Geohash of sightingLocation, for prefix range queries by area
+    private String geohash;
+    // Copy of the missing pet's active flag, so area queries skip sightings of pets already found
+    private Boolean active;
     private Timestamp sightingDateTime;
 
     @JsonIgnore // Skip serialization for the reporterContact field
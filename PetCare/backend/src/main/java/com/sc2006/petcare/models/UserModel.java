@@ -1,5 +1,7 @@
 package com.sc2006.petcare.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.google.cloud.firestore.GeoPoint;
 import com.google.cloud.firestore.annotation.DocumentId;
 import lombok.Data;
 
@@ -13,4 +15,15 @@ public class UserModel {
     private int phoneNumber;
     private String status;
     private String profilePicUrl; // Profile picture URL stored in Firestore
+
+    // Geocoded home, set by UserHomeLocationService and never sent to clients
+    @JsonIgnore
+    private String geocodedAddress; // The address homeLocation was geocoded from
+    @JsonIgnore
+    private GeoPoint homeLocation;
+    @JsonIgnore
+    private String homeGeohash;
+
+    @JsonIgnore // Firebase Cloud Messaging token of the user's device
+    private String pushToken;
 }
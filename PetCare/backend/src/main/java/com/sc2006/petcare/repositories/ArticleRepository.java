@@ -42,6 +42,11 @@ public class ArticleRepository {
         return articleList;
     }
 
+    // A loader for resolving the references of one request in batches
+    public DocumentLoader newDocumentLoader() {
+        return new DocumentLoader(dbFireStore);
+    }
+
     public ArticleModel getArticleByArticleId(String articleId) throws ExecutionException, InterruptedException {
         // Get the DocumentReference for the article by its ID
         DocumentReference articleRef = dbFireStore.collection("Article").document(articleId);
@@ -0,0 +1,93 @@
+package com.sc2006.petcare.repositories;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+
+/*
+ * Per-request batch loader for DocumentReferences.
+ * References are queued with load(), deduplicated by path, and fetched with Firestore.getAll on dispatch().
+ * All chunks are sent before any is awaited, so resolving a whole response costs one round trip.
+ */
+public class DocumentLoader {
+    // Keeps each getAll request well inside Firestore's request size limit
+    private static final int CHUNK_SIZE = 300;
+
+    private final Firestore dbFireStore;
+    private final Map<String, DocumentReference> queued = new LinkedHashMap<>();
+    private final Map<String, DocumentSnapshot> loaded = new HashMap<>();
+    private final Map<String, Exception> failed = new HashMap<>();
+    private int batches;
+
+    DocumentLoader(Firestore dbFireStore) {
+        this.dbFireStore = dbFireStore;
+    }
+
+    public void load(DocumentReference reference) {
+        if (reference == null) {
+            return;
+        }
+        String path = reference.getPath();
+        if (!loaded.containsKey(path) && !failed.containsKey(path)) {
+            queued.putIfAbsent(path, reference);
+        }
+    }
+
+    public void loadAll(Collection<DocumentReference> references) {
+        if (references != null) {
+            references.forEach(this::load);
+        }
+    }
+
+    // Fetch everything queued since the last dispatch
+    public void dispatch() {
+        List<DocumentReference> references = new ArrayList<>(queued.values());
+        queued.clear();
+        List<List<DocumentReference>> chunks = new ArrayList<>();
+        List<ApiFuture<List<DocumentSnapshot>>> futures = new ArrayList<>();
+        for (int start = 0; start < references.size(); start += CHUNK_SIZE) {
+            List<DocumentReference> chunk = references.subList(start, Math.min(start + CHUNK_SIZE, references.size()));
+            chunks.add(chunk);
+            futures.add(dbFireStore.getAll(chunk.toArray(new DocumentReference[0])));
+            batches++;
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                for (DocumentSnapshot document : futures.get(i).get()) {
+                    loaded.put(document.getReference().getPath(), document);
+                }
+            } catch (Exception e) {
+                // Every reference in the chunk reports the failure when read
+                for (DocumentReference reference : chunks.get(i)) {
+                    failed.put(reference.getPath(), e);
+                }
+            }
+        }
+    }
+
+    // The loaded snapshot, or null if the reference was never dispatched; rethrows the error of a failed chunk
+    public DocumentSnapshot get(DocumentReference reference) throws Exception {
+        String path = reference.getPath();
+        Exception error = failed.get(path);
+        if (error != null) {
+            throw error;
+        }
+        return loaded.get(path);
+    }
+
+    public int batches() {
+        return batches;
+    }
+
+    public int size() {
+        return loaded.size();
+    }
+}
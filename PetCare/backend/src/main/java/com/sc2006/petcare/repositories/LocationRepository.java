@@ -1,14 +1,21 @@
 package com.sc2006.petcare.repositories;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
 import com.google.cloud.firestore.WriteResult;
 import com.sc2006.petcare.models.LocationModel;
 
@@ -35,36 +42,26 @@ public class LocationRepository {
         }
     }
 
+    // Location documents are keyed by their coordinates, so an upsert is a single blind write
+    public static String locationIdFor(double latitude, double longitude) {
+        return String.format(Locale.ROOT, "%.7f_%.7f", latitude, longitude);
+    }
+
+    public DocumentReference getLocationDocReference(LocationModel locationModel) {
+        return locationCollection.document(
+                locationIdFor(locationModel.getLocationLatitude(), locationModel.getLocationLongitude()));
+    }
+
     public String saveOrUpdateLocation(LocationModel locationModel) {
         try {
-            // Create a query to check if a location with the same latitude and longitude already exists
-            ApiFuture<QuerySnapshot> future = dbFireStore.collection("Location")
-                .whereEqualTo("locationLatitude", locationModel.getLocationLatitude())
-                .whereEqualTo("locationLongitude", locationModel.getLocationLongitude())
-                .get();
-    
-            QuerySnapshot querySnapshot = future.get();
-    
-            if (!querySnapshot.isEmpty()) {
-                // If a location with the same coordinates exists, update it
-                DocumentReference existingLocationRef = querySnapshot.getDocuments().get(0).getReference();
-                ApiFuture<WriteResult> updateFuture = existingLocationRef.set(locationModel);
-                updateFuture.get(); // Wait for the update operation to complete
-                System.out.println("Location updated with ID: " + existingLocationRef.getId());
-                return existingLocationRef.getId(); // Return the existing document ID
-            } else {
-                // If no existing location, create a new location
-                DocumentReference newLocationRef = dbFireStore.collection("Location").document();
-                ApiFuture<WriteResult> saveFuture = newLocationRef.set(locationModel);
-                saveFuture.get(); // Wait for the save operation to complete
-                System.out.println("New location saved with ID: " + newLocationRef.getId());
-                return newLocationRef.getId(); // Return the new document ID
-            }
+            DocumentReference locationRef = getLocationDocReference(locationModel);
+            ApiFuture<WriteResult> future = locationRef.set(locationModel, SetOptions.merge());
+            future.get(); // Wait for the write to complete
+            return locationRef.getId();
         } catch (Exception e) {
             return "Error saving or updating location: " + e.getMessage();
         }
     }
-    
 
     public LocationModel getLocationById(String locationId) throws Exception {
         // Create a query against the collection where 'locationId' matches the parameter
@@ -80,6 +77,20 @@ public class LocationRepository {
         return location;
     }
 
+    // Fetch many locations in one round trip, keyed by document path
+    public Map<String, LocationModel> getLocations(List<DocumentReference> locationRefs) throws Exception {
+        Map<String, LocationModel> locations = new HashMap<>();
+        if (locationRefs.isEmpty()) {
+            return locations;
+        }
+        for (DocumentSnapshot document : dbFireStore.getAll(locationRefs.toArray(new DocumentReference[0])).get()) {
+            if (document.exists()) {
+                locations.put(document.getReference().getPath(), document.toObject(LocationModel.class));
+            }
+        }
+        return locations;
+    }
+
     public DocumentReference getLocationDocReferenceByLocationId(String locationId) {
         DocumentReference locationRef = dbFireStore.collection("Location").document(locationId);
         return locationRef;
@@ -1,11 +1,15 @@
 package com.sc2006.petcare.repositories;
 
+import com.sc2006.petcare.events.MissingPetFoundEvent;
+import com.sc2006.petcare.events.MissingPetReportedEvent;
 import com.sc2006.petcare.models.MissingPetModel;
 
 import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
 import com.google.cloud.firestore.FieldValue;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.Query;
@@ -18,17 +22,20 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public class MissingPetRepository {
     private final Firestore dbFireStore;
     private final CollectionReference missingCollection;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public MissingPetRepository(Firestore dbFireStore) {
+    public MissingPetRepository(Firestore dbFireStore, ApplicationEventPublisher eventPublisher) {
         this.dbFireStore = dbFireStore;
         this.missingCollection = dbFireStore.collection("MissingPet");
+        this.eventPublisher = eventPublisher;
     }
 
     public boolean existsActiveMissingPet(String petId) {
@@ -50,6 +57,11 @@ public class MissingPetRepository {
         }
     }
 
+    // A loader for resolving the references of one request in batches
+    public DocumentLoader newDocumentLoader() {
+        return new DocumentLoader(dbFireStore);
+    }
+
     public DocumentReference getMissingDocReferenceByMissingId(String missingId) {
         return missingCollection.document(missingId);
     }
@@ -72,14 +84,42 @@ public class MissingPetRepository {
         }
     }
 
-    public List<MissingPetModel> getAllMissingPets() throws Exception {
-        ApiFuture<QuerySnapshot> future = missingCollection.get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+    // Active reports, newest first, starting after the given report when continuing from a previous page.
+    // Needs the composite index MissingPet: active ASC, publishedTime DESC, __name__ DESC
+    public List<MissingPetModel> getActiveMissingPets(int limit, Timestamp afterPublishedTime, String afterId)
+            throws Exception {
+        Query query = missingCollection
+                .whereEqualTo("active", true)
+                .orderBy("publishedTime", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING)
+                .limit(limit);
+        if (afterPublishedTime != null && afterId != null) {
+            query = query.startAfter(afterPublishedTime, afterId);
+        }
 
         List<MissingPetModel> missingList = new ArrayList<>();
-        for (QueryDocumentSnapshot document : documents) {
-            MissingPetModel sighting = document.toObject(MissingPetModel.class);
-            missingList.add(sighting);
+        for (QueryDocumentSnapshot document : query.get().get().getDocuments()) {
+            missingList.add(document.toObject(MissingPetModel.class));
+        }
+        return missingList;
+    }
+
+    // Active reports whose geohash starts with any of the given cell prefixes, one range query per cell.
+    // Needs the composite index MissingPet: active ASC, geohash ASC
+    public List<MissingPetModel> findActiveInCells(List<String> cells) throws Exception {
+        List<ApiFuture<QuerySnapshot>> futures = new ArrayList<>();
+        for (String cell : cells) {
+            futures.add(missingCollection
+                    .whereEqualTo("active", true)
+                    .whereGreaterThanOrEqualTo("geohash", cell)
+                    .whereLessThan("geohash", cell + "~")
+                    .get());
+        }
+        List<MissingPetModel> missingList = new ArrayList<>();
+        for (ApiFuture<QuerySnapshot> future : futures) {
+            for (QueryDocumentSnapshot document : future.get().getDocuments()) {
+                missingList.add(document.toObject(MissingPetModel.class));
+            }
         }
         return missingList;
     }
@@ -104,6 +144,8 @@ public class MissingPetRepository {
         try {
             ApiFuture<WriteResult> future = missingRef.set(missingPetModel);
             future.get();
+            missingPetModel.setId(missingRef.getId());
+            eventPublisher.publishEvent(new MissingPetReportedEvent(missingPetModel));
             return missingRef.getId();
         } catch (Exception e) {
             return "Error adding missing pet: " + e.getMessage();
@@ -115,6 +157,8 @@ public class MissingPetRepository {
         try {
             ApiFuture<WriteResult> future = missingRef.set(missingModel);
             future.get(); // Throws an exception if the operation fails
+            missingModel.setId(missingId);
+            eventPublisher.publishEvent(new MissingPetFoundEvent(missingModel));
             return missingRef.getId() + " marked as found!";
         } catch (Exception e) {
             return "Error editing missing pet: " + e.getMessage();
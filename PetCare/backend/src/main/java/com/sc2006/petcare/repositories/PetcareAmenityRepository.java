@@ -2,32 +2,48 @@ package com.sc2006.petcare.repositories;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
 
 import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteBatch;
 import com.google.cloud.firestore.WriteResult;
 import com.sc2006.petcare.DTO.PlaceOpeningHoursDTO;
+import com.sc2006.petcare.events.PetcareAmenitiesDeletedEvent;
+import com.sc2006.petcare.events.PetcareAmenityUpdatedEvent;
+import com.sc2006.petcare.models.LocationModel;
 import com.sc2006.petcare.models.PetcareAmenityModel;
+import com.sc2006.petcare.utils.WeeklySchedule;
 
 @Repository
 public class PetcareAmenityRepository {
+    // Written on every upsert; the optional fields are added only when present, see mergeFields
+    private static final List<String> REQUIRED_FIELDS = List.of("amenityId", "amenityName", "openNow", "rating",
+            "location", "timestamp", "latitude", "longitude", "address", "geohash");
+
     private final Firestore dbFireStore;
     private final CollectionReference petcareAmenityCollection;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public PetcareAmenityRepository(Firestore dbFireStore) {
+    public PetcareAmenityRepository(Firestore dbFireStore, ApplicationEventPublisher eventPublisher) {
         this.dbFireStore = dbFireStore;
         this.petcareAmenityCollection = dbFireStore.collection("PetcareAmenity");
+        this.eventPublisher = eventPublisher;
     }
 
     public String save(PetcareAmenityModel petcareAmenityModel) {
@@ -73,6 +89,8 @@ public class PetcareAmenityRepository {
                 setFuture.get();
                 System.out.println("New place added successfully.");
             }
+            // Let in-memory caches drop stale copies of this place
+            eventPublisher.publishEvent(new PetcareAmenityUpdatedEvent(petcareAmenityModel));
         } catch (Exception e) {
             System.err.println("An unexpected error occurred: " + e.getMessage());
             return "Error: " + e.getMessage();
@@ -80,25 +98,98 @@ public class PetcareAmenityRepository {
         return "Operation completed successfully";
     }
 
-    public void deleteOldPlaces(long timeThreshold) {
-        try {
-            // Time threshold in milliseconds, e.g., 24 hours = 24 * 60 * 60 * 1000
-            long currentTime = System.currentTimeMillis();
-            long validTimeRange = currentTime - timeThreshold;
-            // Query Firestore to find places older than the time threshold
-            ApiFuture<QuerySnapshot> future = dbFireStore.collection("PetcareAmenity")
-                    .whereLessThan("timestamp", validTimeRange) // Find places older than the threshold
-                    .get();
-            QuerySnapshot querySnapshot = future.get();
-            for (DocumentSnapshot document : querySnapshot.getDocuments()) {
-                ApiFuture<WriteResult> writeResult = document.getReference().delete();
-                writeResult.get();
-                System.out.println("Old place deleted successfully: " + document.getId());
+    // Upsert locations and their amenities together in one batched write
+    public void saveAllPlaceDetails(List<DocumentReference> locationRefs, List<LocationModel> locationModels,
+            List<PetcareAmenityModel> petcareAmenityModels) throws Exception {
+        WriteBatch batch = dbFireStore.batch();
+        for (int i = 0; i < locationRefs.size(); i++) {
+            batch.set(locationRefs.get(i), locationModels.get(i), SetOptions.merge());
+        }
+        for (PetcareAmenityModel petcareAmenityModel : petcareAmenityModels) {
+            batch.set(petcareAmenityCollection.document(petcareAmenityModel.getAmenityId()), petcareAmenityModel,
+                    SetOptions.mergeFieldPaths(mergeFields(petcareAmenityModel)));
+        }
+        batch.commit().get();
+        for (PetcareAmenityModel petcareAmenityModel : petcareAmenityModels) {
+            eventPublisher.publishEvent(new PetcareAmenityUpdatedEvent(petcareAmenityModel));
+        }
+    }
+
+    // A place returned without its photo or details (quota or breaker fallback) leaves those fields null,
+    // so they are left out of the merge instead of erasing what is stored
+    private static List<FieldPath> mergeFields(PetcareAmenityModel amenity) {
+        Map<String, Object> optional = new LinkedHashMap<>();
+        optional.put("openingHours", amenity.getOpeningHours());
+        optional.put("openingIntervals", amenity.getOpeningIntervals());
+        optional.put("utcOffsetMinutes", amenity.getUtcOffsetMinutes());
+        optional.put("contactNumber", amenity.getContactNumber());
+        optional.put("websiteURL", amenity.getWebsiteURL());
+        optional.put("photo", amenity.getPhoto());
+        optional.put("photoUrls", amenity.getPhotoUrls());
+
+        List<FieldPath> fields = new ArrayList<>();
+        for (String field : REQUIRED_FIELDS) {
+            fields.add(FieldPath.of(field));
+        }
+        optional.forEach((field, value) -> {
+            if (value != null) {
+                fields.add(FieldPath.of(field));
+            }
+        });
+        // One path per key, so categories from earlier searches are kept
+        if (amenity.getCategories() != null) {
+            for (String category : amenity.getCategories().keySet()) {
+                fields.add(FieldPath.of("categories", category));
+            }
+        }
+        return fields;
+    }
+
+    // Places whose geohash starts with any of the given cell prefixes, one range query per cell
+    public List<PetcareAmenityModel> findInCells(List<String> cells) throws Exception {
+        List<ApiFuture<QuerySnapshot>> futures = new ArrayList<>();
+        for (String cell : cells) {
+            futures.add(petcareAmenityCollection
+                    .whereGreaterThanOrEqualTo("geohash", cell)
+                    .whereLessThan("geohash", cell + "~")
+                    .get());
+        }
+        List<PetcareAmenityModel> amenities = new ArrayList<>();
+        for (ApiFuture<QuerySnapshot> future : futures) {
+            for (QueryDocumentSnapshot document : future.get().getDocuments()) {
+                amenities.add(document.toObject(PetcareAmenityModel.class));
             }
-        } catch (Exception e) {
-            System.err.println("Error deleting old places: " + e.getMessage());
-            e.printStackTrace();
         }
+        return amenities;
+    }
+
+    // Find up to `limit` places whose timestamp is older than the cutoff
+    public List<DocumentReference> findOldPlaces(Date cutoff, int limit) throws Exception {
+        ApiFuture<QuerySnapshot> future = petcareAmenityCollection
+                .whereLessThan("timestamp", cutoff)
+                .limit(limit)
+                .get();
+        List<DocumentReference> oldPlaces = new ArrayList<>();
+        for (DocumentSnapshot document : future.get().getDocuments()) {
+            oldPlaces.add(document.getReference());
+        }
+        return oldPlaces;
+    }
+
+    // Delete places in one batched write, callers keep batches within the Firestore limit of 500
+    public int deletePlaces(List<DocumentReference> places) throws Exception {
+        if (places.isEmpty()) {
+            return 0;
+        }
+        WriteBatch batch = dbFireStore.batch();
+        List<String> amenityIds = new ArrayList<>();
+        for (DocumentReference place : places) {
+            batch.delete(place);
+            amenityIds.add(place.getId());
+        }
+        batch.commit().get();
+        eventPublisher.publishEvent(new PetcareAmenitiesDeletedEvent(amenityIds));
+        return places.size();
     }
 
     // filter locations by passing in the filtering options and amenityIds
@@ -118,9 +209,6 @@ public class PetcareAmenityRepository {
             if (minRating != null) {
                 query = query.whereGreaterThanOrEqualTo("rating", minRating);
             }
-            if (openNow != null && (openNow.equals("open_now") || openNow.equals("24_hours"))) {
-                query = query.whereEqualTo("open_now", true);
-            }
             querySnapshots.add(query.get());
         }
     
@@ -129,16 +217,24 @@ public class PetcareAmenityRepository {
             for (QueryDocumentSnapshot document : future.get().getDocuments()) {    
                 // Convert document to PetcareAmenityModel
                 PetcareAmenityModel petcareAmenity = document.toObject(PetcareAmenityModel.class);
-                // Handle open 24-hours logic manually
+                // Open checks are evaluated now against the compiled schedule rather than the stored openNow flag
+                WeeklySchedule schedule = petcareAmenity.getOpeningIntervals() != null
+                        ? new WeeklySchedule(petcareAmenity.getOpeningIntervals(), petcareAmenity.getUtcOffsetMinutes())
+                        : null;
+                if (openNow != null && (openNow.equals("open_now") || openNow.equals("24_hours"))) {
+                    boolean isOpen = schedule != null ? schedule.isOpenNow() : petcareAmenity.isOpenNow();
+                    if (!isOpen) {
+                        continue;
+                    }
+                }
                 if (openNow != null && openNow.equals("24_hours")) {
-                    boolean is24Hours = checkIfOpen24Hours(petcareAmenity.getOpeningHours());
-                    if (is24Hours) {
-                        locationIds.add(petcareAmenity.getAmenityId());
+                    boolean is24Hours = schedule != null ? schedule.isOpen24Hours()
+                            : checkIfOpen24Hours(petcareAmenity.getOpeningHours());
+                    if (!is24Hours) {
+                        continue;
                     }
-                } else {
-                    // If not filtering by 24-hours, just add the location ID
-                    locationIds.add(petcareAmenity.getAmenityId());
                 }
+                locationIds.add(petcareAmenity.getAmenityId());
             }
         }
         System.out.println(locationIds);
@@ -147,7 +243,7 @@ public class PetcareAmenityRepository {
     
 
     // Helper method to check if the opening hours indicate 24 hours
-    private boolean checkIfOpen24Hours(List<PlaceOpeningHoursDTO> openingHours) {
+    public static boolean checkIfOpen24Hours(List<PlaceOpeningHoursDTO> openingHours) {
         // Loop through each day's opening hours and check if it spans the full day
         // (e.g., open at "00:00" and close at "23:59")
         for (PlaceOpeningHoursDTO hours : openingHours) {
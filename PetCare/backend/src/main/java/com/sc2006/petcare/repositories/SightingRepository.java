@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
 
 import com.google.api.core.ApiFuture;
@@ -12,18 +13,25 @@ import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.WriteBatch;
 import com.google.cloud.firestore.WriteResult;
+import com.sc2006.petcare.events.SightingReportedEvent;
 import com.sc2006.petcare.models.SightingModel;
 
 @Repository
 public class SightingRepository {
+    // Stay below the Firestore limit of 500 writes per batch
+    private static final int MAX_BATCH_WRITES = 450;
+
     private final Firestore dbFireStore;
     private final CollectionReference sightingCollection;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public SightingRepository(Firestore dbFireStore) {
+    public SightingRepository(Firestore dbFireStore, ApplicationEventPublisher eventPublisher) {
         this.dbFireStore = dbFireStore;
         this.sightingCollection = dbFireStore.collection("MissingPetSighting");
+        this.eventPublisher = eventPublisher;
     }
 
     public DocumentReference getSightingDocReferenceBySightingId(String sightingId) {
@@ -42,11 +50,58 @@ public class SightingRepository {
         return sightingList;
     }
 
+    // Active sightings whose geohash starts with any of the given cell prefixes, one range query per cell.
+    // Needs the composite index MissingPetSighting: active ASC, geohash ASC
+    public List<SightingModel> findActiveInCells(List<String> cells) throws Exception {
+        List<ApiFuture<QuerySnapshot>> futures = new ArrayList<>();
+        for (String cell : cells) {
+            futures.add(sightingCollection
+                    .whereEqualTo("active", true)
+                    .whereGreaterThanOrEqualTo("geohash", cell)
+                    .whereLessThan("geohash", cell + "~")
+                    .get());
+        }
+        List<SightingModel> sightingList = new ArrayList<>();
+        for (ApiFuture<QuerySnapshot> future : futures) {
+            for (QueryDocumentSnapshot document : future.get().getDocuments()) {
+                sightingList.add(document.toObject(SightingModel.class));
+            }
+        }
+        return sightingList;
+    }
+
+    // Copy the missing pet's active flag onto all of its sightings, returns the number updated
+    public int updateActiveForMissingPet(DocumentReference missingPet, boolean active) throws Exception {
+        WriteBatch batch = dbFireStore.batch();
+        int batchWrites = 0;
+        int updated = 0;
+        for (QueryDocumentSnapshot document : sightingCollection.whereEqualTo("missingPet", missingPet).get().get()
+                .getDocuments()) {
+            if (Boolean.valueOf(active).equals(document.getBoolean("active"))) {
+                continue;
+            }
+            batch.update(document.getReference(), "active", active);
+            batchWrites++;
+            updated++;
+            if (batchWrites >= MAX_BATCH_WRITES) {
+                batch.commit().get();
+                batch = dbFireStore.batch();
+                batchWrites = 0;
+            }
+        }
+        if (batchWrites > 0) {
+            batch.commit().get();
+        }
+        return updated;
+    }
+
     public String addSighting(SightingModel sightingModel) {
         DocumentReference sightingRef = dbFireStore.collection("MissingPetSighting").document();
         try {
             ApiFuture<WriteResult> future = sightingRef.set(sightingModel);
             future.get(); // Throws an exception if the operation fails
+            sightingModel.setId(sightingRef.getId());
+            eventPublisher.publishEvent(new SightingReportedEvent(sightingModel));
             return sightingRef.getId();
         } catch (Exception e) {
             return "Error adding sighting: " + e.getMessage();
@@ -1,6 +1,8 @@
 package com.sc2006.petcare.repositories;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.Map;
 
@@ -12,6 +14,9 @@ import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.GeoPoint;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.WriteResult;
 import com.sc2006.petcare.models.ArticleModel;
 import com.sc2006.petcare.models.PetModel;
@@ -107,4 +112,48 @@ public class UserRepository {
         }
     }
 
+    public List<UserModel> getAllUsers() throws Exception {
+        List<UserModel> users = new ArrayList<>();
+        for (QueryDocumentSnapshot document : userCollection.get().get().getDocuments()) {
+            users.add(document.toObject(UserModel.class));
+        }
+        return users;
+    }
+
+    // Users whose home geohash starts with any of the given cell prefixes, one range query per cell
+    public List<UserModel> findByHomeCells(List<String> cells) throws Exception {
+        List<ApiFuture<QuerySnapshot>> futures = new ArrayList<>();
+        for (String cell : cells) {
+            futures.add(userCollection
+                    .whereGreaterThanOrEqualTo("homeGeohash", cell)
+                    .whereLessThan("homeGeohash", cell + "~")
+                    .get());
+        }
+        List<UserModel> users = new ArrayList<>();
+        for (ApiFuture<QuerySnapshot> future : futures) {
+            for (QueryDocumentSnapshot document : future.get().getDocuments()) {
+                users.add(document.toObject(UserModel.class));
+            }
+        }
+        return users;
+    }
+
+    // homeLocation and homeGeohash are null when the address could not be geocoded
+    public void updateHomeLocation(String userId, String address, GeoPoint homeLocation, String homeGeohash)
+            throws Exception {
+        Map<String, Object> updateFields = new HashMap<>();
+        updateFields.put("geocodedAddress", address);
+        updateFields.put("homeLocation", homeLocation);
+        updateFields.put("homeGeohash", homeGeohash);
+        userCollection.document(userId).update(updateFields).get();
+    }
+
+    public String updatePushToken(String userId, String pushToken) {
+        try {
+            userCollection.document(userId).update("pushToken", pushToken).get();
+            return "Push token updated";
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to update push token", e);
+        }
+    }
 }
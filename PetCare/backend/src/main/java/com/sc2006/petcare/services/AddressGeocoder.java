@@ -0,0 +1,101 @@
+package com.sc2006.petcare.services;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.cloud.firestore.GeoPoint;
+
+/*
+ * Geocodes user addresses with the Google Geocoding API.
+ * Results, including "no match", are cached by normalised address so repeated addresses cost one lookup.
+ */
+@Component
+public class AddressGeocoder {
+    @Value("${google.maps.api.key}")
+    private String apiKey;
+
+    @Value("${google.maps.base-url:https://maps.googleapis.com}")
+    private String baseUrl;
+
+    // Biases ambiguous addresses towards the app's country
+    @Value("${google.maps.geocode.region:sg}")
+    private String region;
+
+    @Autowired
+    private MapsHttpClient mapsHttpClient;
+
+    private final Map<String, GeoPoint> cache;
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong notFound = new AtomicLong();
+
+    public AddressGeocoder(@Value("${google.maps.geocode.cache-size:10000}") int cacheSize) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GeoPoint> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    // Null when Google has no match; throws when the lookup itself fails so it can be retried later
+    public GeoPoint geocode(String address) throws Exception {
+        String key = address.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        synchronized (cache) {
+            if (cache.containsKey(key)) {
+                cacheHits.incrementAndGet();
+                return cache.get(key);
+            }
+        }
+        lookups.incrementAndGet();
+        String url = baseUrl + "/maps/api/geocode/json?address=" + URLEncoder.encode(address, StandardCharsets.UTF_8)
+                + "&region=" + region + "&key=" + apiKey;
+        GeoPoint location = mapsHttpClient.get(url,
+                in -> readLocation(new JSONObject(new String(in.readAllBytes(), StandardCharsets.UTF_8))));
+        if (location == null) {
+            notFound.incrementAndGet();
+        }
+        synchronized (cache) {
+            cache.put(key, location);
+        }
+        return location;
+    }
+
+    private static GeoPoint readLocation(JSONObject response) throws IOException {
+        String status = response.optString("status");
+        if ("ZERO_RESULTS".equals(status)) {
+            return null;
+        }
+        if (!"OK".equals(status)) {
+            throw new IOException("Geocoding returned " + status);
+        }
+        JSONArray results = response.getJSONArray("results");
+        if (results.isEmpty()) {
+            return null;
+        }
+        JSONObject location = results.getJSONObject(0).getJSONObject("geometry").getJSONObject("location");
+        return new GeoPoint(location.getDouble("lat"), location.getDouble("lng"));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (cache) {
+            stats.put("cached", cache.size());
+        }
+        stats.put("lookups", lookups.get());
+        stats.put("cacheHits", cacheHits.get());
+        stats.put("notFound", notFound.get());
+        return stats;
+    }
+}
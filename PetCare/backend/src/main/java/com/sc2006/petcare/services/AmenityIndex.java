@@ -0,0 +1,156 @@
+package com.sc2006.petcare.services;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.sc2006.petcare.events.PetcareAmenitiesDeletedEvent;
+import com.sc2006.petcare.events.PetcareAmenityUpdatedEvent;
+import com.sc2006.petcare.models.PetcareAmenityModel;
+import com.sc2006.petcare.repositories.PetcareAmenityRepository;
+import com.sc2006.petcare.utils.WeeklySchedule;
+
+/*
+ * In-process index of recently saved amenities for answering rating and open-now filters
+ * without Firestore. Slots are reused in a ring, so the oldest amenity is dropped when full.
+ * Amenities with compiled opening intervals are checked against their weekly schedule at query time;
+ * the openNow bit is only used for amenities saved before intervals were recorded.
+ */
+@Component
+public class AmenityIndex {
+    private final int capacity;
+    private final String[] ids;
+    private final double[] ratings;
+    private final BitSet openNow;
+    private final BitSet open24Hours;
+    private final WeeklySchedule[] schedules;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int nextSlot;
+
+    private long localLookups;
+    private long fallbackLookups;
+
+    public AmenityIndex(@Value("${petcare.amenity-index.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+        this.ids = new String[capacity];
+        this.ratings = new double[capacity];
+        this.openNow = new BitSet(capacity);
+        this.open24Hours = new BitSet(capacity);
+        this.schedules = new WeeklySchedule[capacity];
+    }
+
+    @EventListener
+    public void onAmenityUpdated(PetcareAmenityUpdatedEvent event) {
+        put(event.getAmenity());
+    }
+
+    // Deleted amenities must not keep matching filters, their slots are freed for the ring to reuse
+    @EventListener
+    public void onAmenitiesDeleted(PetcareAmenitiesDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (String amenityId : event.getAmenityIds()) {
+                Integer slot = slots.remove(amenityId);
+                if (slot != null) {
+                    ids[slot] = null;
+                    ratings[slot] = 0;
+                    openNow.clear(slot);
+                    open24Hours.clear(slot);
+                    schedules[slot] = null;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(PetcareAmenityModel amenity) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.get(amenity.getAmenityId());
+            if (slot == null) {
+                slot = nextSlot;
+                nextSlot = (nextSlot + 1) % capacity;
+                if (ids[slot] != null) {
+                    slots.remove(ids[slot]);
+                }
+                ids[slot] = amenity.getAmenityId();
+                slots.put(amenity.getAmenityId(), slot);
+            }
+            ratings[slot] = amenity.getRating();
+            openNow.set(slot, amenity.isOpenNow());
+            if (amenity.getOpeningIntervals() != null) {
+                schedules[slot] = new WeeklySchedule(amenity.getOpeningIntervals(), amenity.getUtcOffsetMinutes());
+                open24Hours.set(slot, schedules[slot].isOpen24Hours());
+            } else {
+                schedules[slot] = null;
+                open24Hours.set(slot, amenity.getOpeningHours() != null
+                        && PetcareAmenityRepository.checkIfOpen24Hours(amenity.getOpeningHours()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Filter the given place IDs with the same semantics as PetcareAmenityRepository.filterLocations.
+     * Matching IDs are added to `matched`, IDs the index has never seen are added to `unknown`.
+     */
+    public void filter(List<String> placeIds, Double minRating, String openFilter, List<String> matched,
+            List<String> unknown) {
+        boolean requireOpen = "open_now".equals(openFilter) || "24_hours".equals(openFilter);
+        boolean require24Hours = "24_hours".equals(openFilter);
+        long local = 0;
+        lock.readLock().lock();
+        try {
+            for (String placeId : placeIds) {
+                Integer slot = slots.get(placeId);
+                if (slot == null) {
+                    unknown.add(placeId);
+                    continue;
+                }
+                local++;
+                if (minRating != null && ratings[slot] < minRating) {
+                    continue;
+                }
+                if (requireOpen && !(schedules[slot] != null ? schedules[slot].isOpenNow() : openNow.get(slot))) {
+                    continue;
+                }
+                if (require24Hours && !open24Hours.get(slot)) {
+                    continue;
+                }
+                matched.add(placeId);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        synchronized (this) {
+            localLookups += local;
+            fallbackLookups += unknown.size();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("size", slots.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("capacity", capacity);
+        synchronized (this) {
+            stats.put("localLookups", localLookups);
+            stats.put("fallbackLookups", fallbackLookups);
+        }
+        return stats;
+    }
+}
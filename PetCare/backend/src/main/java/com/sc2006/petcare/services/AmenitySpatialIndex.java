@@ -0,0 +1,243 @@
+package com.sc2006.petcare.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.sc2006.petcare.DTO.PlaceDetailsDTO;
+import com.sc2006.petcare.events.PetcareAmenitiesDeletedEvent;
+import com.sc2006.petcare.events.PetcareAmenityUpdatedEvent;
+import com.sc2006.petcare.models.LocationModel;
+import com.sc2006.petcare.models.PetcareAmenityModel;
+import com.sc2006.petcare.repositories.LocationRepository;
+import com.sc2006.petcare.repositories.PetcareAmenityRepository;
+import com.sc2006.petcare.utils.GeoHash;
+
+/*
+ * In-memory geohash index over every stored amenity, for radius and bounding-box queries without Google.
+ * Entries are kept in a map sorted by geohash, so each covering cell is one prefix range scan.
+ * Loaded from PetcareAmenity (and Location, for documents saved before coordinates were denormalized)
+ * once the application is ready, then kept current from amenity save and delete events.
+ */
+@Component
+public class AmenitySpatialIndex {
+    private static final int GEOHASH_PRECISION = 9;
+    private static final int MAX_BOX_CELLS = 32;
+
+    @Autowired
+    private PetcareAmenityRepository petcareAmenityRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    @Autowired
+    private PlacePhotoService placePhotoService;
+
+    @Value("${petcare.amenity.ttl-hours:24}")
+    private long ttlHours;
+
+    // "<geohash>|<amenityId>" -> amenity, sorted so a geohash prefix is a contiguous range
+    private final TreeMap<String, PetcareAmenityModel> byGeohash = new TreeMap<>();
+    private final Map<String, String> keysById = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean loaded;
+    private long loadMillis;
+    private long queries;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        executorRegistry.executor(ExecutorRegistry.Pool.BACKGROUND).execute(this::load);
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        try {
+            List<PetcareAmenityModel> amenities = petcareAmenityRepository.getNearbyAmenities();
+            // Older documents only reference their Location, resolve those in one batched read
+            List<DocumentReference> missing = new ArrayList<>();
+            for (PetcareAmenityModel amenity : amenities) {
+                if ((amenity.getLatitude() == null || amenity.getLongitude() == null) && amenity.getLocation() != null) {
+                    missing.add(amenity.getLocation());
+                }
+            }
+            Map<String, LocationModel> locations = locationRepository.getLocations(missing);
+            for (PetcareAmenityModel amenity : amenities) {
+                if ((amenity.getLatitude() == null || amenity.getLongitude() == null) && amenity.getLocation() != null) {
+                    LocationModel location = locations.get(amenity.getLocation().getPath());
+                    if (location != null) {
+                        amenity.setLatitude(location.getLocationLatitude());
+                        amenity.setLongitude(location.getLocationLongitude());
+                        amenity.setAddress(location.getLocationAddress());
+                    }
+                }
+                put(amenity);
+            }
+            loadMillis = System.currentTimeMillis() - start;
+            loaded = true;
+            System.out.println("Indexed " + size() + " amenities in " + loadMillis + " ms");
+        } catch (Exception e) {
+            System.err.println("Error loading amenity spatial index: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    @EventListener
+    public void onAmenityUpdated(PetcareAmenityUpdatedEvent event) {
+        put(event.getAmenity());
+    }
+
+    @EventListener
+    public void onAmenitiesDeleted(PetcareAmenitiesDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (String amenityId : event.getAmenityIds()) {
+                String key = keysById.remove(amenityId);
+                if (key != null) {
+                    byGeohash.remove(key);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(PetcareAmenityModel amenity) {
+        // Indexed amenities are served to clients, so their photos may be fetched
+        placePhotoService.allow(PlacePhotoService.referenceFromUrl(amenity.getPhoto()));
+        lock.writeLock().lock();
+        try {
+            String previousKey = keysById.get(amenity.getAmenityId());
+            PetcareAmenityModel previous = previousKey != null ? byGeohash.get(previousKey) : null;
+            if (previous != null && previous.getCategories() != null) {
+                // Stored categories are merged on write, mirror that here
+                Map<String, Boolean> categories = new HashMap<>(previous.getCategories());
+                if (amenity.getCategories() != null) {
+                    categories.putAll(amenity.getCategories());
+                }
+                amenity.setCategories(categories);
+            }
+            if (amenity.getLatitude() == null || amenity.getLongitude() == null) {
+                // Partial update without coordinates, keep the indexed position
+                if (previous == null) {
+                    return;
+                }
+                amenity.setLatitude(previous.getLatitude());
+                amenity.setLongitude(previous.getLongitude());
+                if (amenity.getAddress() == null) {
+                    amenity.setAddress(previous.getAddress());
+                }
+            }
+            String geohash = amenity.getGeohash() != null ? amenity.getGeohash()
+                    : GeoHash.encode(amenity.getLatitude(), amenity.getLongitude(), GEOHASH_PRECISION);
+            String key = geohash + "|" + amenity.getAmenityId();
+            if (previousKey != null && !previousKey.equals(key)) {
+                byGeohash.remove(previousKey);
+            }
+            byGeohash.put(key, amenity);
+            keysById.put(amenity.getAmenityId(), key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Amenities within radiusMetres of the point, nearest first
+    public List<PlaceDetailsDTO> withinRadius(double latitude, double longitude, int radiusMetres, Double minRating,
+            String type, int limit) {
+        List<PetcareAmenityModel> matches = scan(GeoHash.coveringCells(latitude, longitude, radiusMetres), minRating,
+                type, amenity -> GeoHash.distanceMetres(latitude, longitude, amenity.getLatitude(),
+                        amenity.getLongitude()) <= radiusMetres);
+        matches.sort(Comparator.comparingDouble(amenity -> GeoHash.distanceMetres(latitude, longitude,
+                amenity.getLatitude(), amenity.getLongitude())));
+        return toPlaceDetails(matches, limit);
+    }
+
+    // Amenities inside the bounding box, highest rated first
+    public List<PlaceDetailsDTO> withinBounds(double minLat, double minLng, double maxLat, double maxLng,
+            Double minRating, String type, int limit) {
+        List<PetcareAmenityModel> matches = scan(GeoHash.cellsInBox(minLat, minLng, maxLat, maxLng, MAX_BOX_CELLS),
+                minRating, type, amenity -> amenity.getLatitude() >= minLat && amenity.getLatitude() <= maxLat
+                        && amenity.getLongitude() >= minLng && amenity.getLongitude() <= maxLng);
+        matches.sort(Comparator.comparingDouble(PetcareAmenityModel::getRating).reversed());
+        return toPlaceDetails(matches, limit);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", loaded);
+        stats.put("size", size());
+        stats.put("loadMillis", loadMillis);
+        synchronized (this) {
+            stats.put("queries", queries);
+        }
+        return stats;
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return byGeohash.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<PetcareAmenityModel> scan(List<String> cells, Double minRating, String type,
+            Predicate<PetcareAmenityModel> inArea) {
+        synchronized (this) {
+            queries++;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(ttlHours);
+        String category = type != null ? type.trim().toLowerCase() : null;
+        List<PetcareAmenityModel> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (String cell : cells) {
+                for (PetcareAmenityModel amenity : byGeohash.subMap(cell, cell + "~").values()) {
+                    // Past the amenity TTL the sweeper is about to delete it
+                    if (amenity.getTimestamp() != null && amenity.getTimestamp().getTime() < cutoff) {
+                        continue;
+                    }
+                    if (minRating != null && amenity.getRating() < minRating) {
+                        continue;
+                    }
+                    if (category != null && (amenity.getCategories() == null
+                            || !Boolean.TRUE.equals(amenity.getCategories().get(category)))) {
+                        continue;
+                    }
+                    if (inArea.test(amenity)) {
+                        matches.add(amenity);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matches;
+    }
+
+    private static List<PlaceDetailsDTO> toPlaceDetails(List<PetcareAmenityModel> amenities, int limit) {
+        List<PlaceDetailsDTO> results = new ArrayList<>();
+        for (PetcareAmenityModel amenity : amenities.subList(0, Math.max(0, Math.min(limit, amenities.size())))) {
+            results.add(PlaceDetailsDTO.fromAmenity(amenity));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,107 @@
+package com.sc2006.petcare.services;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.sc2006.petcare.repositories.PetcareAmenityRepository;
+
+/*
+ * Background sweeper that deletes expired PetcareAmenity documents in batched writes,
+ * so searches no longer pay for stale data cleanup.
+ */
+@Component
+public class AmenityTtlSweeper {
+    // Firestore allows at most 500 writes per batch
+    private static final int MAX_BATCH_SIZE = 500;
+
+    @Autowired
+    private PetcareAmenityRepository petcareAmenityRepository;
+
+    @Value("${petcare.amenity.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${petcare.amenity-sweeper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${petcare.amenity-sweeper.jitter-ms:30000}")
+    private long jitterMillis;
+
+    private final AtomicBoolean paused = new AtomicBoolean(false);
+
+    // Written by sweep() and read by stats() without its lock, so stats never wait for a sweep in progress
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong totalDeleted = new AtomicLong();
+    private volatile long lastDeleted;
+    private volatile long lastDurationMillis;
+    private volatile Date lastRunAt;
+
+    @Scheduled(initialDelayString = "${petcare.amenity-sweeper.initial-delay-ms:60000}",
+            fixedDelayString = "${petcare.amenity-sweeper.interval-ms:900000}")
+    public void scheduledSweep() throws InterruptedException {
+        if (paused.get()) {
+            return;
+        }
+        // Jitter so several instances do not sweep in lockstep
+        if (jitterMillis > 0) {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(jitterMillis));
+        }
+        sweep();
+    }
+
+    public synchronized void sweep() {
+        long start = System.currentTimeMillis();
+        Date cutoff = new Date(start - ttlHours * 60 * 60 * 1000);
+        int limit = Math.min(batchSize, MAX_BATCH_SIZE);
+        long deleted = 0;
+        try {
+            while (!paused.get()) {
+                List<DocumentReference> expired = petcareAmenityRepository.findOldPlaces(cutoff, limit);
+                deleted += petcareAmenityRepository.deletePlaces(expired);
+                if (expired.size() < limit) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error sweeping expired places: " + e.getMessage());
+            e.printStackTrace();
+        }
+        runs.incrementAndGet();
+        lastDeleted = deleted;
+        totalDeleted.addAndGet(deleted);
+        lastDurationMillis = System.currentTimeMillis() - start;
+        lastRunAt = new Date(start);
+        if (deleted > 0) {
+            System.out.println("Amenity sweeper deleted " + deleted + " expired places");
+        }
+    }
+
+    public void pause() {
+        paused.set(true);
+    }
+
+    public void resume() {
+        paused.set(false);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("paused", paused.get());
+        stats.put("runs", runs.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastDurationMillis", lastDurationMillis);
+        stats.put("lastDeleted", lastDeleted);
+        stats.put("totalDeleted", totalDeleted.get());
+        return stats;
+    }
+}
@@ -2,8 +2,9 @@ package com.sc2006.petcare.services;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -18,6 +19,7 @@ import com.sc2006.petcare.DTO.ArticleDetailsUpdateDTO;
 import com.sc2006.petcare.models.ArticleModel;
 import com.sc2006.petcare.models.UserModel;
 import com.sc2006.petcare.repositories.ArticleRepository;
+import com.sc2006.petcare.repositories.DocumentLoader;
 import com.sc2006.petcare.repositories.UserRepository;
 
 @Service
@@ -101,8 +103,16 @@ public class ArticleService {
             if (articleList.isEmpty()) {
                 System.out.println("No articles found in Firestore.");
             }
-            // Process articles in parallel for better performance
-            return articleList.parallelStream().map(article -> {
+            // Every poster in one batched read instead of a read per article
+            DocumentLoader loader = articleRepository.newDocumentLoader();
+            for (ArticleModel article : articleList) {
+                loader.load(article.getPoster());
+            }
+            loader.dispatch();
+            // Signed once per poster picture, posters usually write several articles
+            Map<String, String> signedProfilePics = new HashMap<>();
+
+            for (ArticleModel article : articleList) {
                 ArticleDetailsDTO dto = new ArticleDetailsDTO();
                 dto.setArticleId(article.getId());
                 dto.setArticleTitle(article.getArticleTitle());
@@ -119,14 +129,13 @@ public class ArticleService {
 
                 // Fetch the poster details
                 try {
-                    ApiFuture<DocumentSnapshot> future = article.getPoster().get();
-                    DocumentSnapshot document = future.get();
-                    if (document.exists()) {
+                    DocumentSnapshot document = article.getPoster() != null ? loader.get(article.getPoster()) : null;
+                    if (document != null && document.exists()) {
                         UserModel poster = document.toObject(UserModel.class);
                         if (poster != null && poster.getProfilePicUrl() != null) {
                             // Set URL instead of base64
-                            poster.setProfilePicUrl(
-                                    firebaseService.getSignedUrlFromFileName(poster.getProfilePicUrl()));
+                            poster.setProfilePicUrl(signedProfilePics.computeIfAbsent(poster.getProfilePicUrl(),
+                                    firebaseService::getSignedUrlFromFileName));
                         }
                         dto.setPoster(poster);
                     } else {
@@ -138,8 +147,9 @@ public class ArticleService {
                     e.printStackTrace();
                 }
 
-                return dto;
-            }).collect(Collectors.toList());
+                articleDetailsDTOs.add(dto);
+            }
+            return articleDetailsDTOs;
 
         } catch (Exception e) {
             System.err.println("Error retrieving articles: " + e.getMessage());
@@ -0,0 +1,66 @@
+package com.sc2006.petcare.services;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import com.sc2006.petcare.DTO.ProximityAlertDTO;
+import com.sc2006.petcare.models.UserModel;
+
+/* Sends an alert as one email per batch, with the recipients in BCC so they don't see each other */
+@Component
+public class EmailNotificationChannel implements NotificationChannel {
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Value("${petcare.alerts.email.enabled:true}")
+    private boolean enabled;
+
+    @Value("${petcare.alerts.email.from:${spring.mail.username:}}")
+    private String from;
+
+    @Value("${petcare.alerts.email.batch-size:50}")
+    private int batchSize;
+
+    @Override
+    public String name() {
+        return "email";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public int send(ProximityAlertDTO alert, List<UserModel> recipients) {
+        String[] emails = recipients.stream()
+                .map(UserModel::getEmail)
+                .filter(email -> email != null && !email.isBlank())
+                .distinct()
+                .toArray(String[]::new);
+        if (emails.length == 0) {
+            return 0;
+        }
+        SimpleMailMessage message = new SimpleMailMessage();
+        if (!from.isEmpty()) {
+            message.setFrom(from);
+        }
+        message.setBcc(emails);
+        message.setSubject("Missing pet near you: " + alert.getPetName());
+        message.setText(alert.getPetName() + " has been reported missing near your home."
+                + (alert.getLastSeenDescription() != null ? "\n\nLast seen: " + alert.getLastSeenDescription() : "")
+                + "\n\nOpen the PetCare app to see where, or to report a sighting.");
+        mailSender.send(message);
+        return emails.length;
+    }
+}
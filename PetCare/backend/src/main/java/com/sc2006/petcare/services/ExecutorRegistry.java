@@ -0,0 +1,269 @@
+package com.sc2006.petcare.services;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ * Named, bounded thread pools for all asynchronous work in the services, instead of ForkJoinPool.commonPool.
+ *   IO         blocking Firestore, Storage and Google calls; rejects when full so callers can shed load
+ *   CPU        compute such as image resizing, sized to the cores; runs on the caller when full
+ *   BACKGROUND refreshes, prefetches, loaders and flushes nobody is waiting on; rejects when full
+ *   SSE        writes to live event stream clients, kept apart so stalled clients can't starve IO; rejects when full
+ * Each pool reports queue depth, active threads and queue/run latency through stats().
+ */
+@Component
+public class ExecutorRegistry {
+    public enum Pool {
+        IO, CPU, BACKGROUND, SSE
+    }
+
+    private final Map<Pool, InstrumentedExecutor> pools = new EnumMap<>(Pool.class);
+    // Only fires timers, the work itself is handed to a pool
+    private final ScheduledExecutorService scheduler;
+
+    public ExecutorRegistry(
+            @Value("${petcare.executors.io.threads:32}") int ioThreads,
+            @Value("${petcare.executors.io.queue:256}") int ioQueue,
+            // 0 means one thread per available core
+            @Value("${petcare.executors.cpu.threads:0}") int cpuThreads,
+            @Value("${petcare.executors.cpu.queue:64}") int cpuQueue,
+            @Value("${petcare.executors.background.threads:4}") int backgroundThreads,
+            @Value("${petcare.executors.background.queue:500}") int backgroundQueue,
+            @Value("${petcare.executors.sse.threads:16}") int sseThreads,
+            @Value("${petcare.executors.sse.queue:1000}") int sseQueue) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        pools.put(Pool.IO, new InstrumentedExecutor("io", ioThreads, ioQueue, new ThreadPoolExecutor.AbortPolicy()));
+        pools.put(Pool.CPU, new InstrumentedExecutor("cpu", cpuThreads > 0 ? cpuThreads : cores, cpuQueue,
+                new ThreadPoolExecutor.CallerRunsPolicy()));
+        pools.put(Pool.BACKGROUND, new InstrumentedExecutor("background", backgroundThreads, backgroundQueue,
+                new ThreadPoolExecutor.AbortPolicy()));
+        pools.put(Pool.SSE, new InstrumentedExecutor("sse", sseThreads, sseQueue, new ThreadPoolExecutor.AbortPolicy()));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "petcare-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Executor executor(Pool pool) {
+        return pools.get(pool);
+    }
+
+    // Run on the pool; a full IO, BACKGROUND or SSE pool fails the future with RejectedExecutionException
+    public <T> CompletableFuture<T> supplyAsync(Pool pool, Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, pools.get(pool));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Executor that runs tasks on the pool after a delay
+    public Executor delayed(Pool pool, long delay, TimeUnit unit) {
+        return runnable -> scheduler.schedule(() -> execute(pool, runnable), delay, unit);
+    }
+
+    // Run a short action such as a timeout on the timer thread itself; anything slow belongs on a pool
+    public ScheduledFuture<?> schedule(Runnable action, long delay, TimeUnit unit) {
+        return scheduler.schedule(action, delay, unit);
+    }
+
+    // Periodically hand the task to the pool; runs are skipped while the previous one is still going
+    public SerialTask scheduleWithFixedDelay(Pool pool, Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        SerialTask serialTask = new SerialTask(pool, task);
+        serialTask.schedule = scheduler.scheduleWithFixedDelay(serialTask::trigger, initialDelay, delay, unit);
+        return serialTask;
+    }
+
+    // A task that can be triggered from any thread but never runs concurrently with itself
+    public SerialTask serial(Pool pool, Runnable task) {
+        return new SerialTask(pool, task);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        pools.forEach((pool, executor) -> stats.put(pool.name().toLowerCase(), executor.stats()));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdownNow();
+        for (InstrumentedExecutor executor : pools.values()) {
+            executor.shutdown();
+        }
+        for (InstrumentedExecutor executor : pools.values()) {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private void execute(Pool pool, Runnable runnable) {
+        try {
+            pools.get(pool).execute(runnable);
+        } catch (RejectedExecutionException e) {
+            // Someone may be waiting on it, so run it here rather than drop it
+            runnable.run();
+        }
+    }
+
+    /* A task that never runs concurrently with itself; triggers while it runs cause one more run afterwards */
+    public class SerialTask {
+        private final Pool pool;
+        private final Runnable task;
+        private final AtomicInteger state = new AtomicInteger(); // 0 idle, 1 running, 2 running with rerun
+        private ScheduledFuture<?> schedule;
+
+        private SerialTask(Pool pool, Runnable task) {
+            this.pool = pool;
+            this.task = task;
+        }
+
+        // False only if the pool rejected the run
+        public boolean trigger() {
+            while (true) {
+                int current = state.get();
+                if (current == 2 || (current == 1 && state.compareAndSet(1, 2))) {
+                    return true;
+                }
+                if (current == 0 && state.compareAndSet(0, 1)) {
+                    break;
+                }
+            }
+            try {
+                pools.get(pool).execute(this::runLoop);
+                return true;
+            } catch (RejectedExecutionException e) {
+                state.set(0); // The next tick tries again
+                return false;
+            }
+        }
+
+        // Stop the timer and wait for a run in progress
+        public void cancel(long timeout, TimeUnit unit) throws InterruptedException {
+            if (schedule != null) {
+                schedule.cancel(false);
+            }
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (state.get() != 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+
+        private void runLoop() {
+            do {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    System.err.println("Error in background task: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            } while (!state.compareAndSet(1, 0) && state.getAndSet(1) == 2);
+        }
+    }
+
+    /* ThreadPoolExecutor that times how long tasks wait in the queue and how long they run */
+    private static class InstrumentedExecutor extends ThreadPoolExecutor {
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalQueueMillis = new AtomicLong();
+        private final AtomicLong maxQueueMillis = new AtomicLong();
+        private final AtomicLong totalRunMillis = new AtomicLong();
+        private final AtomicLong maxRunMillis = new AtomicLong();
+        private final int queueCapacity;
+
+        InstrumentedExecutor(String name, int threads, int queueCapacity, RejectedExecutionHandler rejectionPolicy) {
+            super(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                    new NamedThreadFactory("petcare-" + name), rejectionPolicy);
+            this.queueCapacity = queueCapacity;
+            allowCoreThreadTimeOut(true);
+            RejectedExecutionHandler policy = getRejectedExecutionHandler();
+            setRejectedExecutionHandler((runnable, executor) -> {
+                rejected.incrementAndGet();
+                policy.rejectedExecution(runnable, executor);
+            });
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            long queuedAt = System.nanoTime();
+            super.execute(() -> {
+                long startedAt = System.nanoTime();
+                record(totalQueueMillis, maxQueueMillis, TimeUnit.NANOSECONDS.toMillis(startedAt - queuedAt));
+                try {
+                    command.run();
+                    completed.incrementAndGet();
+                } catch (RuntimeException | Error e) {
+                    failed.incrementAndGet();
+                    throw e;
+                } finally {
+                    record(totalRunMillis, maxRunMillis, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+                }
+            });
+            submitted.incrementAndGet();
+        }
+
+        private static void record(AtomicLong total, AtomicLong max, long millis) {
+            total.addAndGet(millis);
+            max.accumulateAndGet(millis, Math::max);
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long finished = completed.get() + failed.get();
+            stats.put("threads", getMaximumPoolSize());
+            stats.put("activeThreads", getActiveCount());
+            stats.put("poolSize", getPoolSize());
+            stats.put("queueDepth", getQueue().size());
+            stats.put("queueCapacity", queueCapacity);
+            stats.put("submitted", submitted.get());
+            stats.put("completed", completed.get());
+            stats.put("failed", failed.get());
+            stats.put("rejected", rejected.get());
+            stats.put("avgQueueMillis", finished == 0 ? 0 : totalQueueMillis.get() / finished);
+            stats.put("maxQueueMillis", maxQueueMillis.get());
+            stats.put("avgRunMillis", finished == 0 ? 0 : totalRunMillis.get() / finished);
+            stats.put("maxRunMillis", maxRunMillis.get());
+            return stats;
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
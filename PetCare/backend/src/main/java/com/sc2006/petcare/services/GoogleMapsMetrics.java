@@ -0,0 +1,101 @@
+package com.sc2006.petcare.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/* Counters for the Google Maps search pipeline, exposed through /api/googlemaps/metrics */
+@Component
+public class GoogleMapsMetrics {
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong duplicatePlaces = new AtomicLong();
+    private final AtomicLong upstreamCallsSaved = new AtomicLong();
+    private final AtomicLong streamedSearches = new AtomicLong();
+    private final AtomicLong streamedPlaces = new AtomicLong();
+    private final AtomicLong searchFallbacks = new AtomicLong();
+    private final AtomicLong degradedDetails = new AtomicLong();
+
+    @Autowired
+    private PlaceTileCache tileCache;
+
+    @Autowired
+    private PlacePhotoService photoService;
+
+    @Autowired
+    private PlaceWriteBehindQueue writeBehindQueue;
+
+    @Autowired
+    private AmenityIndex amenityIndex;
+
+    @Autowired
+    private MapsHttpClient mapsHttpClient;
+
+    @Autowired
+    private PlacesQuotaGovernor quotaGovernor;
+
+    @Autowired
+    private SearchCoalescer searchCoalescer;
+
+    @Autowired
+    private StaleWhileRevalidateService swrService;
+
+    @Autowired
+    private AmenitySpatialIndex spatialIndex;
+
+    @Autowired
+    private MapsCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private PhotoThumbnailService thumbnailService;
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    public void recordDeduplication(int duplicates, int callsSaved) {
+        searches.incrementAndGet();
+        duplicatePlaces.addAndGet(duplicates);
+        upstreamCallsSaved.addAndGet(callsSaved);
+    }
+
+    public void recordStreamedSearch(int places) {
+        streamedSearches.incrementAndGet();
+        streamedPlaces.addAndGet(places);
+    }
+
+    // A search answered from the local index because Google failed or its circuit was open
+    public void recordSearchFallback() {
+        searchFallbacks.incrementAndGet();
+    }
+
+    // A place returned without its details because the details call failed
+    public void recordDegradedDetails() {
+        degradedDetails.incrementAndGet();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("searches", searches.get());
+        metrics.put("duplicatePlaces", duplicatePlaces.get());
+        metrics.put("upstreamCallsSaved", upstreamCallsSaved.get());
+        metrics.put("streamedSearches", streamedSearches.get());
+        metrics.put("streamedPlaces", streamedPlaces.get());
+        metrics.put("searchFallbacks", searchFallbacks.get());
+        metrics.put("degradedDetails", degradedDetails.get());
+        metrics.put("tileCache", tileCache.stats());
+        metrics.put("photoCache", photoService.stats());
+        metrics.put("thumbnails", thumbnailService.stats());
+        metrics.put("writeBehind", writeBehindQueue.stats());
+        metrics.put("amenityIndex", amenityIndex.stats());
+        metrics.put("http", mapsHttpClient.stats());
+        metrics.put("quota", quotaGovernor.stats());
+        metrics.put("coalescer", searchCoalescer.stats());
+        metrics.put("swr", swrService.stats());
+        metrics.put("spatialIndex", spatialIndex.stats());
+        metrics.put("circuitBreakers", circuitBreaker.stats());
+        metrics.put("executors", executorRegistry.stats());
+        return metrics;
+    }
+}
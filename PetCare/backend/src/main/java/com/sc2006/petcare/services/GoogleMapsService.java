@@ -1,147 +1,163 @@
 package com.sc2006.petcare.services;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Base64;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.google.cloud.firestore.DocumentReference;
-import com.sc2006.petcare.DTO.DayTimeDTO;
 import com.sc2006.petcare.DTO.PlaceDetailsDTO;
-import com.sc2006.petcare.DTO.PlaceOpeningHoursDTO;
-import com.sc2006.petcare.models.LocationModel;
+import com.sc2006.petcare.DTO.PlaceSearchPageDTO;
+import com.sc2006.petcare.DTO.PlaceSearchResultDTO;
 import com.sc2006.petcare.models.PetcareAmenityModel;
-import com.sc2006.petcare.repositories.LocationRepository;
 import com.sc2006.petcare.repositories.PetcareAmenityRepository;
 
 @Service
 public class GoogleMapsService {
+    // Places never returns more than three pages (60 results) for one search
+    private static final int MAX_PAGES = 3;
+    // A next_page_token only becomes valid a short while after it is issued
+    private static final long PAGE_TOKEN_DELAY_MS = 2000;
+    private static final int PAGE_TOKEN_RETRIES = 3;
+
+    @FunctionalInterface
+    public interface PageListener {
+        void onPage(List<PlaceDetailsDTO> places) throws IOException;
+    }
+
     @Value("${google.maps.api.key}")
     private String apiKey;
 
+    // Overridden to point at a local stand-in for load testing
+    @Value("${google.maps.base-url:https://maps.googleapis.com}")
+    private String baseUrl;
+
     @Autowired
     private PetcareAmenityRepository petcareAmenityRepository;
 
     @Autowired
-    private LocationRepository locationRepository;
+    private PlacesFanOutExecutor fanOutExecutor;
+
+    @Autowired
+    private GoogleMapsMetrics mapsMetrics;
+
+    @Autowired
+    private PlaceTileCache tileCache;
+
+    @Autowired
+    private PlaceWriteBehindQueue writeBehindQueue;
+
+    @Autowired
+    private AmenityIndex amenityIndex;
+
+    @Autowired
+    private PlacesResponseReader responseReader;
+
+    @Autowired
+    private MapsHttpClient mapsHttpClient;
+
+    @Autowired
+    private PlacesQuotaGovernor quotaGovernor;
+
+    @Autowired
+    private PlacePhotoService photoService;
+
+    @Autowired
+    private SearchCoalescer searchCoalescer;
+
+    @Autowired
+    private StaleWhileRevalidateService swrService;
+
+    @Autowired
+    private MapsCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private AmenitySpatialIndex amenitySpatialIndex;
+
+    @Autowired
+    private PhotoThumbnailService thumbnailService;
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
 
     public List<PlaceDetailsDTO> searchNearbyPetCare(double latitude, double longitude, int radius,
             List<String> keywords) throws Exception {
-        List<PlaceDetailsDTO> placeDTOList = new ArrayList<>();
-        long twentyFourHoursInMillis = 24 * 60 * 60 * 1000; // 24 hours
-        deleteOldPlaces(twentyFourHoursInMillis);
+        if (swrService.isEnabled()) {
+            // Answer from stored amenities, Google is only called for missing or stale keywords
+            return swrService.search(latitude, longitude, radius, keywords,
+                    (missing, answered) -> searchNearbyUpstream(latitude, longitude, radius, missing, answered));
+        }
+        return searchNearbyUpstream(latitude, longitude, radius, keywords, new HashSet<>());
+    }
 
+    // Keywords Google answered are added to `answered`; a search that joins an identical one leaves it empty
+    private List<PlaceDetailsDTO> searchNearbyUpstream(double latitude, double longitude, int radius,
+            List<String> keywords, Set<String> answered) throws Exception {
+        // Identical concurrent searches share one upstream computation
+        String key = searchCoalescer.key("nearby", latitude, longitude, radius, keywords);
+        return searchCoalescer.execute(key, () -> fetchNearbyPetCare(latitude, longitude, radius, keywords, answered));
+    }
+
+    private List<PlaceDetailsDTO> fetchNearbyPetCare(double latitude, double longitude, int radius,
+            List<String> keywords, Set<String> answered) throws Exception {
+        // Fire every keyword search at once, each unique place fans out into details and photo calls
+        EnrichmentStage stage = new EnrichmentStage();
+        List<CompletableFuture<List<PlaceDetailsDTO>>> keywordResults = new ArrayList<>();
         for (String keyword : keywords) {
             String urlString = String.format(
-                    "https://maps.googleapis.com/maps/api/place/nearbysearch/json?location=%f,%f&radius=%d&keyword=%s&key=%s",
+                    baseUrl + "/maps/api/place/nearbysearch/json?location=%f,%f&radius=%d&keyword=%s&key=%s",
                     latitude, longitude, radius, keyword, apiKey);
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            String inputLine;
-            StringBuilder response = new StringBuilder();
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
+            String tileKey = PlaceTileCache.tileKey(latitude, longitude, radius, keyword);
+            String category = StaleWhileRevalidateService.category(keyword);
+            keywordResults.add(cachedSearch(stage, PlacesQuotaGovernor.Endpoint.NEARBY, tileKey, urlString, "vicinity",
+                    () -> amenitySpatialIndex.withinRadius(latitude, longitude, radius, null, category,
+                            PlacesResponseReader.MAX_RESULTS)));
+        }
+        List<PlaceDetailsDTO> placeDTOList = joinAll(keywordResults);
+        stage.recordMetrics();
+        for (String keyword : keywords) {
+            if (stage.isAnswered(PlaceTileCache.tileKey(latitude, longitude, radius, keyword))) {
+                answered.add(keyword);
             }
-            in.close();
-            conn.disconnect();
-
-            JSONObject jsonResponse = new JSONObject(response.toString());
-            JSONArray places = jsonResponse.getJSONArray("results");
-
-            // for (int i = 0; i < places.length(); i++) {
-            // Limit to the first 10 results
-            for (int i = 0; i < Math.min(places.length(), 10); i++) {
-                JSONObject place = places.getJSONObject(i);
-                List<PlaceOpeningHoursDTO> openingPeriods = new ArrayList<>();
-
-                // Access fields expected to always exist directly
-                String placeId = place.getString("place_id");
-                String name = place.getString("name");
-
-                // Access optional fields with fallback defaults
-                double rating = place.optDouble("rating", 0.0);
-                String vicinity = place.optString("vicinity");
-                double lat = place.optJSONObject("geometry").getJSONObject("location").getDouble("lat");
-                double lng = place.optJSONObject("geometry").getJSONObject("location").getDouble("lng");
-
-                // Fetch photo reference and convert to Base64
-                String base64Photo = null;
-                if (place.has("photos")) {
-                    JSONArray photos = place.getJSONArray("photos");
-                    String photoReference = photos.getJSONObject(0).getString("photo_reference");
-                    base64Photo = fetchPhotoAsBase64(photoReference);
-                }
-
-                // Make a request to Place Details for each place
-                String placeDetailsUrl = String.format(
-                        "https://maps.googleapis.com/maps/api/place/details/json?place_id=%s&fields=formatted_phone_number,website,opening_hours&key=%s",
-                        placeId, apiKey);
-                URL detailsUrl = new URL(placeDetailsUrl);
-                HttpURLConnection detailsConn = (HttpURLConnection) detailsUrl.openConnection();
-                detailsConn.setRequestMethod("GET");
-                BufferedReader detailsIn = new BufferedReader(new InputStreamReader(detailsConn.getInputStream()));
-                StringBuilder detailsResponse = new StringBuilder();
-                String detailsLine;
-                while ((detailsLine = detailsIn.readLine()) != null) {
-                    detailsResponse.append(detailsLine);
-                }
-                detailsIn.close();
-                detailsConn.disconnect();
-
-                JSONObject detailsJson = new JSONObject(detailsResponse.toString());
-                JSONObject placeDetails = detailsJson.getJSONObject("result");
-
-                JSONObject openingHours = placeDetails.optJSONObject("opening_hours");
-                JSONArray periods = new JSONArray();
-                boolean openNow = false;
-                if (openingHours != null) {
-                    openNow = openingHours.optBoolean("open_now", false);
-                    periods = openingHours.optJSONArray("periods");
-                    openingPeriods = parseOpeningHours(periods);
-                } else {
-                    openingPeriods.add(new PlaceOpeningHoursDTO(new DayTimeDTO(-1, "N/A"), null));
-                }
-                String phoneNumber = placeDetails.optString("formatted_phone_number", "N/A");
-                String website = placeDetails.optString("website", "N/A");
+        }
 
-                PlaceDetailsDTO placeDetailsDTO = new PlaceDetailsDTO(placeId, name, rating, base64Photo, openNow,
-                        vicinity, lat, lng, phoneNumber, website, openingPeriods);
-                placeDTOList.add(placeDetailsDTO);
+        // Remember which keywords returned each place so later searches can be answered from storage
+        Map<String, Set<String>> categoriesByPlace = new HashMap<>();
+        for (int i = 0; i < keywords.size(); i++) {
+            String category = StaleWhileRevalidateService.category(keywords.get(i));
+            for (PlaceDetailsDTO place : keywordResults.get(i).join()) {
+                categoriesByPlace.computeIfAbsent(place.getId(), id -> new HashSet<>()).add(category);
             }
         }
+
         // Remove duplicate entries by placeId
         List<PlaceDetailsDTO> uniquePlaceDTOs = removeDuplicateLocations(placeDTOList);
 
-        // Save unique places asynchronously
+        // Queue unique places for batched saving, places missing their details are not persisted
         for (PlaceDetailsDTO placeDetailsDTO : uniquePlaceDTOs) {
-            CompletableFuture.runAsync(() -> savePlaceDTO(placeDetailsDTO));
+            if (!stage.isDegraded(placeDetailsDTO.getId())) {
+                savePlaceDTO(placeDetailsDTO, categoriesByPlace.get(placeDetailsDTO.getId()));
+            }
         }
 
         return uniquePlaceDTOs;
 
     }
 
-    public void deleteOldPlaces(long timeThreshold) {
-        petcareAmenityRepository.deleteOldPlaces(timeThreshold);
-    }
-
     public String saveOrUpdatePlaceDTO(PetcareAmenityModel petcareAmenityModel) {
         try {
             return petcareAmenityRepository.saveOrUpdatePlaceDetails(petcareAmenityModel);
@@ -155,177 +171,380 @@ public class GoogleMapsService {
     }
 
     public String savePlaceDTO(PlaceDetailsDTO placeDetailsDTO) {
-        try {
-            // Map PlaceDetailsDTO to Location
-            LocationModel locationModel = new LocationModel();
-            locationModel.setLocationLatitude(placeDetailsDTO.getLatitude());
-            locationModel.setLocationLongitude(placeDetailsDTO.getLongitude());
-            locationModel.setLocationAddress(placeDetailsDTO.getVicinity());
-
-            // Save Location and get the saved instance ID
-            String locationId = locationRepository.saveOrUpdateLocation(locationModel);
-
-            // Map PlaceDetailsDTO to PetcareAmenity
-            PetcareAmenityModel petcareAmenityModel = new PetcareAmenityModel();
-            petcareAmenityModel.setAmenityId(placeDetailsDTO.getId());
-            petcareAmenityModel.setAmenityName(placeDetailsDTO.getName());
-            petcareAmenityModel.setOpenNow(placeDetailsDTO.isOpenNow());
-            petcareAmenityModel.setOpeningHours(placeDetailsDTO.getOpeningHours());
-            petcareAmenityModel.setContactNumber(placeDetailsDTO.getPhoneNumber());
-            petcareAmenityModel.setWebsiteURL(placeDetailsDTO.getWebsite());
-            petcareAmenityModel.setRating(placeDetailsDTO.getRating());
-            DocumentReference locationRef = locationRepository.getLocationDocReferenceByLocationId(locationId);
-            petcareAmenityModel.setLocation(locationRef);
-            petcareAmenityModel.setPhoto(placeDetailsDTO.getPhotoBase64());
-            petcareAmenityModel.setTimestamp(new Date());
-
-            // Save PetcareAmenity
-            petcareAmenityRepository.saveOrUpdatePlaceDetails(petcareAmenityModel);
+        return savePlaceDTO(placeDetailsDTO, Set.of());
+    }
 
+    // Places are persisted in batches by the write-behind queue
+    public String savePlaceDTO(PlaceDetailsDTO placeDetailsDTO, Set<String> categories) {
+        if (writeBehindQueue.enqueue(placeDetailsDTO, categories)) {
             return "Success";
-        } catch (Exception e) {
-            // Handle any exceptions
-            System.err.println("Error saving place details: " + e.getMessage());
-            e.printStackTrace();
-            return "Error: " + e.getMessage();
         }
+        System.err.println("Write-behind queue full, skipped saving place: " + placeDetailsDTO.getId());
+        return "Error: write-behind queue is full";
     }
 
-    public List<PlaceOpeningHoursDTO> parseOpeningHours(JSONArray periods) {
-        List<PlaceOpeningHoursDTO> openingPeriods = new ArrayList<>();
 
-        if (periods != null) {
-            for (int i = 0; i < periods.length(); i++) {
-                JSONObject period = periods.getJSONObject(i);
-
-                // Extract opening time details
-                JSONObject openTime = period.optJSONObject("open");
-                DayTimeDTO open = null;
-                if (openTime != null) {
-                    int openDay = openTime.optInt("day", -1);
-                    String openTimeStr = openTime.optString("time", null);
-                    open = new DayTimeDTO(openDay, openTimeStr);
-                }
-
-                // Extract closing time details
-                JSONObject closeTime = period.optJSONObject("close");
-                DayTimeDTO close = null;
-                if (closeTime != null) {
-                    int closeDay = closeTime.optInt("day", -1);
-                    String closeTimeStr = closeTime.optString("time", null);
-                    close = new DayTimeDTO(closeDay, closeTimeStr);
-                }
+    /* Filter By Rating, OpenNow or Both */
+    public List<String> filterLocations(List<String> placeIds, Double minRating, String openNow) throws Exception {
+        if (placeIds == null || placeIds.isEmpty()) {
+            throw new IllegalArgumentException("Place IDs list cannot be null or empty.");
+        }
+        // Answer recently seen places from the in-memory index, only unknown IDs go to Firestore
+        List<String> matched = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        amenityIndex.filter(placeIds, minRating, openNow, matched, unknown);
+        if (!unknown.isEmpty()) {
+            matched.addAll(petcareAmenityRepository.filterLocations(unknown, minRating, openNow));
+        }
 
-                // Add to the list of opening hours
-                openingPeriods.add(new PlaceOpeningHoursDTO(open, close));
+        // Keep the order the client sent the IDs in
+        Set<String> matchedIds = new HashSet<>(matched);
+        List<String> filteredLocations = new ArrayList<>();
+        for (String placeId : placeIds) {
+            if (matchedIds.remove(placeId)) {
+                filteredLocations.add(placeId);
             }
-        } else {
-            openingPeriods.add(new PlaceOpeningHoursDTO(new DayTimeDTO(-1, "N/A"), null));
         }
-        return openingPeriods;
-    }
-
-    /* Filter By Rating, OpenNow or Both */
-    public List<String> filterLocations(List<String> placeIds, Double minRating, String openNow) throws Exception {
-        // Retrieve the sorted list of PetcareAmenityModel objects
-        List<String> filteredLocations = petcareAmenityRepository.filterLocations(placeIds, minRating, openNow);
         return filteredLocations;
     }
 
     public List<PlaceDetailsDTO> searchLocationByKeyword(double latitude, double longitude, int radius, String keyword, List<String> types) throws Exception {
-        List<PlaceDetailsDTO> petcareAmenityList = new ArrayList<>();
+        String key = searchCoalescer.key("text:" + keyword.trim().toLowerCase(), latitude, longitude, radius, types);
+        return searchCoalescer.execute(key, () -> fetchLocationByKeyword(latitude, longitude, radius, keyword, types));
+    }
 
-        long twentyFourHoursInMillis = 24 * 60 * 60 * 1000; // 24 hours
-        deleteOldPlaces(twentyFourHoursInMillis);
+    private List<PlaceDetailsDTO> fetchLocationByKeyword(double latitude, double longitude, int radius,
+            String keyword, List<String> types) throws Exception {
+        EnrichmentStage stage = new EnrichmentStage();
+        List<CompletableFuture<List<PlaceDetailsDTO>>> typeResults = new ArrayList<>();
         for (String type : types) {
             String urlString = String.format(
-                    "https://maps.googleapis.com/maps/api/place/textsearch/json?query=%s&location=%f,%f&radius=%d&key=%s&type=%s",
+                    baseUrl + "/maps/api/place/textsearch/json?query=%s&location=%f,%f&radius=%d&key=%s&type=%s",
                     keyword, latitude, longitude, radius, apiKey, type);
+            String tileKey = PlaceTileCache.tileKey(latitude, longitude, radius, "text:" + keyword + ":" + type);
+            typeResults.add(cachedSearch(stage, PlacesQuotaGovernor.Endpoint.TEXT_SEARCH, tileKey, urlString,
+                    "formatted_address", () -> localKeywordSearch(latitude, longitude, radius, keyword)));
+        }
+        List<PlaceDetailsDTO> petcareAmenityList = joinAll(typeResults);
+        stage.recordMetrics();
 
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            StringBuilder response = new StringBuilder();
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
+        // Remove duplicate entries by placeId
+        List<PlaceDetailsDTO> uniquePlaceDTOs = removeDuplicateLocations(petcareAmenityList);
+        // Queue unique places for batched saving, places missing their details are not persisted
+        for (PlaceDetailsDTO placeDetailsDTO : uniquePlaceDTOs) {
+            if (!stage.isDegraded(placeDetailsDTO.getId())) {
+                savePlaceDTO(placeDetailsDTO);
             }
-            in.close();
-            conn.disconnect();
-
-            JSONObject jsonResponse = new JSONObject(response.toString());
-            JSONArray places = jsonResponse.getJSONArray("results");
-
-            for (int i = 0; i < Math.min(places.length(), 10); i++) {
-                JSONObject place = places.getJSONObject(i);
-                List<PlaceOpeningHoursDTO> openingPeriods = new ArrayList<>();
-
-                // Access fields expected to always exist directly
-                String placeId = place.getString("place_id");
-                String name = place.getString("name");
-                // Access optional fields with fallback defaults
-                Double rating = place.optDouble("rating", 0.0);
-                String vicinity = place.optString("formatted_address");
-                double lat = place.optJSONObject("geometry").getJSONObject("location").getDouble("lat");
-                double lng = place.optJSONObject("geometry").getJSONObject("location").getDouble("lng");
-
-                // Fetch photo reference and convert to Base64
-                String base64Photo = null;
-                if (place.has("photos")) {
-                    JSONArray photos = place.getJSONArray("photos");
-                    String photoReference = photos.getJSONObject(0).getString("photo_reference");
-                    base64Photo = fetchPhotoAsBase64(photoReference);
+        }
+        return uniquePlaceDTOs;
+    }
+
+    /*
+     * Stream nearby results page by page. Each keyword's first page is handed to the listener as soon as
+     * it is enriched, further pages follow next_page_token in the background up to maxPages.
+     * Streaming bypasses the tile cache, which only holds first pages.
+     */
+    public CompletableFuture<Void> streamNearbyPetCare(double latitude, double longitude, int radius,
+            List<String> keywords, int maxPages, PageListener listener) {
+        EnrichmentStage stage = new EnrichmentStage();
+        int pageLimit = Math.max(1, Math.min(maxPages, MAX_PAGES));
+        // Places already sent to the listener, so overlapping keywords don't repeat them
+        Set<String> emitted = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Void>> keywordStreams = new ArrayList<>();
+        for (String keyword : keywords) {
+            String urlString = String.format(
+                    baseUrl + "/maps/api/place/nearbysearch/json?location=%f,%f&radius=%d&keyword=%s&key=%s",
+                    latitude, longitude, radius, keyword, apiKey);
+            keywordStreams.add(streamPages(stage, urlString, StaleWhileRevalidateService.category(keyword), 1,
+                    pageLimit, 0, emitted, listener));
+        }
+        return CompletableFuture.allOf(keywordStreams.toArray(new CompletableFuture[0]))
+                .whenComplete((done, error) -> {
+                    stage.recordMetrics();
+                    mapsMetrics.recordStreamedSearch(emitted.size());
+                });
+    }
+
+    private CompletableFuture<Void> streamPages(EnrichmentStage stage, String urlString, String category,
+            int pageNumber, int pageLimit, int attempt, Set<String> emitted, PageListener listener) {
+        if (!circuitBreaker.isCallPermitted(MapsCircuitBreaker.Circuit.SEARCH)
+                || !quotaGovernor.allows(PlacesQuotaGovernor.Endpoint.NEARBY)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return stage.fetchPage(urlString).thenCompose(page -> {
+            if (pageNumber > 1 && "INVALID_REQUEST".equals(page.getStatus()) && attempt < PAGE_TOKEN_RETRIES) {
+                // The token is not active yet, wait and ask again
+                return afterTokenDelay().thenCompose(ready -> streamPages(stage, urlString, category, pageNumber,
+                        pageLimit, attempt + 1, emitted, listener));
+            }
+            return stage.enrichAll(page.getResults()).thenCompose(places -> {
+                emitPage(stage, places, category, emitted, listener);
+                if (page.getNextPageToken() == null || pageNumber >= pageLimit) {
+                    return CompletableFuture.completedFuture(null);
                 }
+                String nextUrl = String.format(
+                        baseUrl + "/maps/api/place/nearbysearch/json?pagetoken=%s&key=%s",
+                        page.getNextPageToken(), apiKey);
+                return afterTokenDelay().thenCompose(ready -> streamPages(stage, nextUrl, category,
+                        pageNumber + 1, pageLimit, 0, emitted, listener));
+            });
+        }).exceptionally(error -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof UncheckedIOException) {
+                // The client went away, stop streaming
+                throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+            }
+            // Out of quota or Google failing, end this keyword with what was already streamed
+            if (!isQuotaExceeded(error) && !(cause instanceof MapsCircuitBreaker.CircuitOpenException)) {
+                System.err.println("Error streaming nearby page: " + cause.getMessage());
+            }
+            return null;
+        });
+    }
 
-                // Make a request to Place Details for each place
-                String placeDetailsUrl = String.format(
-                        "https://maps.googleapis.com/maps/api/place/details/json?place_id=%s&fields=formatted_phone_number,website,opening_hours&key=%s",
-                        placeId, apiKey);
-                URL detailsUrl = new URL(placeDetailsUrl);
-                HttpURLConnection detailsConn = (HttpURLConnection) detailsUrl.openConnection();
-                detailsConn.setRequestMethod("GET");
-                BufferedReader detailsIn = new BufferedReader(new InputStreamReader(detailsConn.getInputStream()));
-                StringBuilder detailsResponse = new StringBuilder();
-                String detailsLine;
-                while ((detailsLine = detailsIn.readLine()) != null) {
-                    detailsResponse.append(detailsLine);
+    private void emitPage(EnrichmentStage stage, List<PlaceDetailsDTO> places, String category,
+            Set<String> emitted, PageListener listener) {
+        List<PlaceDetailsDTO> newPlaces = new ArrayList<>();
+        for (PlaceDetailsDTO place : places) {
+            if (!stage.isDegraded(place.getId())) {
+                savePlaceDTO(place, Set.of(category));
+            }
+            if (emitted.add(place.getId())) {
+                newPlaces.add(place);
+            }
+        }
+        if (newPlaces.isEmpty()) {
+            return;
+        }
+        try {
+            listener.onPage(newPlaces);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CompletableFuture<Void> afterTokenDelay() {
+        return CompletableFuture.runAsync(() -> {
+        }, executorRegistry.delayed(ExecutorRegistry.Pool.IO, PAGE_TOKEN_DELAY_MS, TimeUnit.MILLISECONDS));
+    }
+
+    /*
+     * Serve a keyword/type search from the tile cache, going upstream only on a miss.
+     * While the search circuit is open, or if Google fails, stored amenities from the local index are served instead.
+     */
+    private CompletableFuture<List<PlaceDetailsDTO>> cachedSearch(EnrichmentStage stage,
+            PlacesQuotaGovernor.Endpoint endpoint, String tileKey, String urlString, String addressField,
+            Supplier<List<PlaceDetailsDTO>> localFallback) {
+        List<PlaceDetailsDTO> cached = tileCache.get(tileKey);
+        if (cached != null) {
+            stage.answered(tileKey);
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (!circuitBreaker.isCallPermitted(MapsCircuitBreaker.Circuit.SEARCH)) {
+            return CompletableFuture.completedFuture(stage.fallback(localFallback));
+        }
+        if (!quotaGovernor.allows(endpoint)) {
+            // Out of budget, the cache is all we can serve for this search
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        return stage.search(endpoint, urlString, addressField).handle((places, error) -> {
+            if (error != null) {
+                if (isQuotaExceeded(error)) {
+                    return new ArrayList<PlaceDetailsDTO>();
                 }
-                detailsIn.close();
-                detailsConn.disconnect();
-
-                JSONObject detailsJson = new JSONObject(detailsResponse.toString());
-                JSONObject placeDetails = detailsJson.getJSONObject("result");
-
-                JSONObject openingHours = placeDetails.optJSONObject("opening_hours");
-                JSONArray periods = new JSONArray();
-                boolean openNow = false;
-                if (openingHours != null) {
-                    openNow = openingHours.optBoolean("open_now", false);
-                    periods = openingHours.optJSONArray("periods");
-                    openingPeriods = parseOpeningHours(periods);
-                } else {
-                    openingPeriods.add(new PlaceOpeningHoursDTO(new DayTimeDTO(-1, "N/A"), null));
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                System.err.println("Places search failed, serving stored amenities: " + cause.getMessage());
+                return stage.fallback(localFallback);
+            }
+            // Only tiles with fully enriched places are worth caching
+            if (places.stream().noneMatch(place -> stage.isDegraded(place.getId()))) {
+                tileCache.put(tileKey, places);
+                stage.answered(tileKey);
+            }
+            return places;
+        });
+    }
+
+    // Stored amenities whose name contains the keyword, for text searches Google can't answer
+    private List<PlaceDetailsDTO> localKeywordSearch(double latitude, double longitude, int radius, String keyword) {
+        String term = keyword.trim().toLowerCase();
+        return amenitySpatialIndex.withinRadius(latitude, longitude, radius, null, null, Integer.MAX_VALUE).stream()
+                .filter(place -> place.getName() != null && place.getName().toLowerCase().contains(term))
+                .limit(PlacesResponseReader.MAX_RESULTS)
+                .collect(Collectors.toList());
+    }
+
+    // Call Places through the endpoint's circuit breaker, recording OVER_QUERY_LIMIT responses with the governor
+    private <T> T callPlaces(PlacesQuotaGovernor.Endpoint endpoint, String urlString,
+            MapsHttpClient.BodyReader<T> reader) throws Exception {
+        MapsCircuitBreaker.Circuit circuit = MapsCircuitBreaker.Circuit.of(endpoint);
+        try {
+            return circuitBreaker.call(circuit,
+                    () -> mapsHttpClient.get(urlString, circuitBreaker.timeout(circuit), reader));
+        } catch (PlacesQuotaGovernor.QuotaExceededException e) {
+            quotaGovernor.reportOverQueryLimit(endpoint);
+            throw e;
+        }
+    }
+
+    // Take a rate token on the fan-out thread running the call, so waiting for one never blocks the request thread
+    private void acquireQuota(PlacesQuotaGovernor.Endpoint endpoint) {
+        if (!quotaGovernor.tryAcquire(endpoint)) {
+            throw new PlacesQuotaGovernor.QuotaExceededException("Places " + endpoint + " call shed");
+        }
+    }
+
+    private static boolean isQuotaExceeded(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof PlacesQuotaGovernor.QuotaExceededException;
+    }
+
+    // Without photo budget, or while the photo circuit is open, only photos already on disk are offered to the client
+    private PlaceDetailsDTO applyPhotoPolicy(PlaceDetailsDTO placeDetailsDTO, PlaceSearchResultDTO place) {
+        if (placeDetailsDTO.getPhotoUrl() != null
+                && (!quotaGovernor.allows(PlacesQuotaGovernor.Endpoint.PHOTO)
+                        || !circuitBreaker.isCallPermitted(MapsCircuitBreaker.Circuit.PHOTO))
+                && !photoService.isCached(place.getPhotoReference())) {
+            placeDetailsDTO.setPhotoUrl(null);
+        }
+        if (placeDetailsDTO.getPhotoUrl() != null) {
+            photoService.allow(place.getPhotoReference());
+            placeDetailsDTO.setPhotoUrls(thumbnailService.urlsFor(place.getPhotoReference()));
+            if (quotaGovernor.allows(PlacesQuotaGovernor.Endpoint.PHOTO)
+                    && circuitBreaker.isCallPermitted(MapsCircuitBreaker.Circuit.PHOTO)) {
+                // Resize in the background so list views get small images on the next search
+                thumbnailService.schedule(place.getPhotoReference());
+            }
+        }
+        return placeDetailsDTO;
+    }
+
+    /*
+     * Per-request pipeline stage. Search pages are parsed into place IDs first, and each
+     * unique place ID is enriched only once even if several keywords or types return it.
+     */
+    private class EnrichmentStage {
+        private final PlacesFanOutExecutor.Batch batch = fanOutExecutor.newBatch();
+        private final Map<String, CompletableFuture<PlaceDetailsDTO>> enrichedPlaces = new ConcurrentHashMap<>();
+        private final AtomicInteger duplicatePlaces = new AtomicInteger();
+        private final AtomicInteger upstreamCallsSaved = new AtomicInteger();
+        // Places not to persist: returned without their details, or served from the local index
+        private final Set<String> degradedPlaces = ConcurrentHashMap.newKeySet();
+        // Tiles Google answered in full, from this stage or the tile cache, so their places are being stored
+        private final Set<String> answeredTiles = ConcurrentHashMap.newKeySet();
+
+        CompletableFuture<List<PlaceDetailsDTO>> search(PlacesQuotaGovernor.Endpoint endpoint, String urlString,
+                String addressField) {
+            return batch.submit(() -> {
+                acquireQuota(endpoint);
+                return callPlaces(endpoint, urlString,
+                        in -> responseReader.readSearchResults(in, addressField, PlacesResponseReader.MAX_RESULTS));
+            }).thenCompose(this::enrichAll);
+        }
+
+        // One raw page, enrichment is left to the caller
+        CompletableFuture<PlaceSearchPageDTO> fetchPage(String urlString) {
+            return batch.submit(() -> {
+                acquireQuota(PlacesQuotaGovernor.Endpoint.NEARBY);
+                return callPlaces(PlacesQuotaGovernor.Endpoint.NEARBY, urlString,
+                        in -> responseReader.readSearchPage(in, "vicinity", Integer.MAX_VALUE));
+            });
+        }
+
+        boolean isDegraded(String placeId) {
+            return degradedPlaces.contains(placeId);
+        }
+
+        void answered(String tileKey) {
+            answeredTiles.add(tileKey);
+        }
+
+        boolean isAnswered(String tileKey) {
+            return answeredTiles.contains(tileKey);
+        }
+
+        // Local results are already stored, saving them again would only refresh their timestamp
+        List<PlaceDetailsDTO> fallback(Supplier<List<PlaceDetailsDTO>> localFallback) {
+            mapsMetrics.recordSearchFallback();
+            List<PlaceDetailsDTO> places = localFallback.get();
+            for (PlaceDetailsDTO place : places) {
+                degradedPlaces.add(place.getId());
+            }
+            return places;
+        }
+
+        private CompletableFuture<List<PlaceDetailsDTO>> enrichAll(List<PlaceSearchResultDTO> results) {
+            List<CompletableFuture<PlaceDetailsDTO>> placeFutures = new ArrayList<>();
+            for (PlaceSearchResultDTO result : results) {
+                CompletableFuture<PlaceDetailsDTO> placeFuture = new CompletableFuture<>();
+                CompletableFuture<PlaceDetailsDTO> existing = enrichedPlaces.putIfAbsent(result.getPlaceId(), placeFuture);
+                if (existing != null) {
+                    // Already being enriched for another keyword, skip its details call
+                    duplicatePlaces.incrementAndGet();
+                    upstreamCallsSaved.incrementAndGet();
+                    placeFutures.add(existing);
+                    continue;
                 }
-                String phoneNumber = placeDetails.optString("formatted_phone_number", "N/A");
-                String website = placeDetails.optString("website", "N/A");
+                enrichPlace(result).whenComplete((place, error) -> {
+                    if (error != null) {
+                        placeFuture.completeExceptionally(error);
+                    } else {
+                        placeFuture.complete(place);
+                    }
+                });
+                placeFutures.add(placeFuture);
+            }
+            return CompletableFuture.allOf(placeFutures.toArray(new CompletableFuture[0]))
+                    .thenApply(done -> placeFutures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+        }
 
-                PlaceDetailsDTO placeDetailsDTO = new PlaceDetailsDTO(placeId, name, rating, base64Photo, openNow,
-                        vicinity,
-                        lat, lng, phoneNumber, website, openingPeriods);
+        private CompletableFuture<PlaceDetailsDTO> enrichPlace(PlaceSearchResultDTO place) {
+            if (!circuitBreaker.isCallPermitted(MapsCircuitBreaker.Circuit.DETAILS)
+                    || !quotaGovernor.allows(PlacesQuotaGovernor.Endpoint.DETAILS)) {
+                degradedPlaces.add(place.getPlaceId());
+                return CompletableFuture.completedFuture(applyPhotoPolicy(responseReader.basicDetails(place), place));
+            }
+            // Make a request to Place Details for each place
+            String placeDetailsUrl = String.format(
+                    baseUrl + "/maps/api/place/details/json?place_id=%s&fields=formatted_phone_number,website,opening_hours,utc_offset&key=%s",
+                    place.getPlaceId(), apiKey);
+            return batch.submit(() -> {
+                acquireQuota(PlacesQuotaGovernor.Endpoint.DETAILS);
+                return callPlaces(PlacesQuotaGovernor.Endpoint.DETAILS, placeDetailsUrl,
+                        in -> responseReader.readDetails(in, place));
+            }).handle((details, error) -> {
+                if (error == null) {
+                    return applyPhotoPolicy(details, place);
+                }
+                // Only the details fields are lost, the place itself is still returned
+                if (!isQuotaExceeded(error)) {
+                    mapsMetrics.recordDegradedDetails();
+                }
+                degradedPlaces.add(place.getPlaceId());
+                return applyPhotoPolicy(responseReader.basicDetails(place), place);
+            });
+        }
 
-                // Save the result asynchronously
-                // CompletableFuture.runAsync(() -> savePlaceDTO(placeDetailsDTO));
-                petcareAmenityList.add(placeDetailsDTO);
+        void recordMetrics() {
+            mapsMetrics.recordDeduplication(duplicatePlaces.get(), upstreamCallsSaved.get());
+            if (duplicatePlaces.get() > 0) {
+                System.out.println("Skipped " + duplicatePlaces.get() + " duplicate places, saved "
+                        + upstreamCallsSaved.get() + " upstream calls");
             }
         }
-        // Remove duplicate entries by placeId
-        List<PlaceDetailsDTO> uniquePlaceDTOs = removeDuplicateLocations(petcareAmenityList);
-        // Save unique places asynchronously
-        for (PlaceDetailsDTO placeDetailsDTO : uniquePlaceDTOs) {
-            CompletableFuture.runAsync(() -> savePlaceDTO(placeDetailsDTO));
+    }
+
+    // Wait for every search and flatten the results, keeping the order they were issued in
+    private List<PlaceDetailsDTO> joinAll(List<CompletableFuture<List<PlaceDetailsDTO>>> futures) throws Exception {
+        List<PlaceDetailsDTO> results = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<PlaceDetailsDTO>> future : futures) {
+                results.addAll(future.join());
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
         }
-        return uniquePlaceDTOs;
+        return results;
     }
 
     public List<PlaceDetailsDTO> removeDuplicateLocations(List<PlaceDetailsDTO> placeDTOList) {
@@ -340,28 +559,4 @@ public class GoogleMapsService {
         }
         return uniquePlaces;
     }
-
-    private String fetchPhotoAsBase64(String photoReference) throws Exception {
-        String photoUrl = String.format(
-                "https://maps.googleapis.com/maps/api/place/photo?maxwidth=400&photoreference=%s&key=%s",
-                photoReference, apiKey);
-        String imageString = "";
-        URL url = new URL(photoUrl);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        try (BufferedInputStream in = new BufferedInputStream(conn.getInputStream())) {
-            byte[] buffer = new byte[4096];
-            int bytesRead;
-            while ((bytesRead = in.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
-            }
-        }
-        conn.disconnect();
-
-        byte[] imageBytes = outputStream.toByteArray();
-        imageString = Base64.getEncoder().encodeToString(imageBytes);
-        return imageString;
-    }
-}
\ No newline at end of file
+}
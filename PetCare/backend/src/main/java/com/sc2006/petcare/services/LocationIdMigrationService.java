@@ -0,0 +1,84 @@
+package com.sc2006.petcare.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteBatch;
+import com.sc2006.petcare.models.LocationModel;
+import com.sc2006.petcare.repositories.LocationRepository;
+
+/*
+ * One-off migration that re-keys Location documents to their coordinate-derived IDs
+ * and points every PetcareAmenity.location reference at the new document.
+ */
+@Service
+public class LocationIdMigrationService {
+    // Stay below the Firestore limit of 500 writes per batch
+    private static final int MAX_BATCH_WRITES = 450;
+
+    @Autowired
+    private Firestore dbFireStore;
+
+    public synchronized Map<String, Object> migrate() throws Exception {
+        CollectionReference locationCollection = dbFireStore.collection("Location");
+        CollectionReference amenityCollection = dbFireStore.collection("PetcareAmenity");
+        long scanned = 0;
+        long rekeyed = 0;
+        long amenitiesUpdated = 0;
+
+        WriteBatch batch = dbFireStore.batch();
+        int batchWrites = 0;
+        for (QueryDocumentSnapshot document : locationCollection.get().get().getDocuments()) {
+            scanned++;
+            LocationModel location = document.toObject(LocationModel.class);
+            String newId = LocationRepository.locationIdFor(location.getLocationLatitude(),
+                    location.getLocationLongitude());
+            if (newId.equals(document.getId())) {
+                continue;
+            }
+            DocumentReference oldRef = document.getReference();
+            DocumentReference newRef = locationCollection.document(newId);
+
+            // Duplicates with the same coordinates collapse into a single document
+            batch.set(newRef, document.getData(), SetOptions.merge());
+            batchWrites++;
+            for (QueryDocumentSnapshot amenity : amenityCollection.whereEqualTo("location", oldRef).get().get()
+                    .getDocuments()) {
+                batch.update(amenity.getReference(), "location", newRef);
+                batchWrites++;
+                amenitiesUpdated++;
+                if (batchWrites >= MAX_BATCH_WRITES) {
+                    batch.commit().get();
+                    batch = dbFireStore.batch();
+                    batchWrites = 0;
+                }
+            }
+            batch.delete(oldRef);
+            batchWrites++;
+            rekeyed++;
+            if (batchWrites >= MAX_BATCH_WRITES) {
+                batch.commit().get();
+                batch = dbFireStore.batch();
+                batchWrites = 0;
+            }
+        }
+        if (batchWrites > 0) {
+            batch.commit().get();
+        }
+        System.out.println("Location migration re-keyed " + rekeyed + " of " + scanned + " locations");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("scanned", scanned);
+        result.put("rekeyed", rekeyed);
+        result.put("amenitiesUpdated", amenitiesUpdated);
+        return result;
+    }
+}
@@ -0,0 +1,188 @@
+package com.sc2006.petcare.services;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ * Circuit breakers for the Google Maps endpoints, one each for searches, details and photos.
+ * After a run of consecutive failures (errors or timeouts) a circuit opens and calls fail fast
+ * for the open period. Then a single half-open probe is let through: success closes the circuit,
+ * failure opens it again. OVER_QUERY_LIMIT is left to the quota governor and does not count.
+ */
+@Component
+public class MapsCircuitBreaker {
+    public enum Circuit {
+        SEARCH, DETAILS, PHOTO;
+
+        public static Circuit of(PlacesQuotaGovernor.Endpoint endpoint) {
+            switch (endpoint) {
+                case DETAILS:
+                    return DETAILS;
+                case PHOTO:
+                    return PHOTO;
+                default:
+                    return SEARCH;
+            }
+        }
+    }
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    // What tryAcquire let through: nothing, an ordinary call, or the single half-open probe
+    private enum Permit {
+        DENIED, CALL, PROBE
+    }
+
+    // Thrown instead of calling Google while a circuit is open
+    public static class CircuitOpenException extends RuntimeException {
+        public CircuitOpenException(String message) {
+            super(message);
+        }
+    }
+
+    private final Map<Circuit, Breaker> breakers = new EnumMap<>(Circuit.class);
+    private final int failureThreshold;
+    private final long openMillis;
+
+    public MapsCircuitBreaker(
+            @Value("${google.maps.breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${google.maps.breaker.open-ms:30000}") long openMillis,
+            @Value("${google.maps.breaker.search.timeout-ms:3000}") long searchTimeoutMillis,
+            @Value("${google.maps.breaker.details.timeout-ms:2000}") long detailsTimeoutMillis,
+            @Value("${google.maps.breaker.photo.timeout-ms:5000}") long photoTimeoutMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        breakers.put(Circuit.SEARCH, new Breaker(Duration.ofMillis(searchTimeoutMillis)));
+        breakers.put(Circuit.DETAILS, new Breaker(Duration.ofMillis(detailsTimeoutMillis)));
+        breakers.put(Circuit.PHOTO, new Breaker(Duration.ofMillis(photoTimeoutMillis)));
+    }
+
+    // Whether a call would currently be let through, without taking the half-open probe
+    public boolean isCallPermitted(Circuit circuit) {
+        return breakers.get(circuit).isCallPermitted();
+    }
+
+    public Duration timeout(Circuit circuit) {
+        return breakers.get(circuit).timeout;
+    }
+
+    // Run the call through the circuit, failing fast while it is open
+    public <T> T call(Circuit circuit, Callable<T> call) throws Exception {
+        Breaker breaker = breakers.get(circuit);
+        Permit permit = breaker.tryAcquire();
+        if (permit == Permit.DENIED) {
+            throw new CircuitOpenException("Google Maps " + circuit + " circuit is open");
+        }
+        boolean probe = permit == Permit.PROBE;
+        try {
+            T result = call.call();
+            breaker.onSuccess(probe);
+            return result;
+        } catch (PlacesQuotaGovernor.QuotaExceededException e) {
+            // Google answered, it is only out of quota
+            breaker.onSuccess(probe);
+            throw e;
+        } catch (Exception e) {
+            if (breaker.onFailure(probe)) {
+                System.err.println("Google Maps " + circuit + " circuit opened after " + e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        breakers.forEach((circuit, breaker) -> stats.put(circuit.name(), breaker.stats()));
+        return stats;
+    }
+
+    private class Breaker {
+        private final Duration timeout;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean probeInFlight;
+
+        private long calls;
+        private long failures;
+        private long rejected;
+        private long opened;
+
+        Breaker(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        synchronized boolean isCallPermitted() {
+            if (state == State.OPEN) {
+                return System.currentTimeMillis() >= openUntil;
+            }
+            return state == State.CLOSED || !probeInFlight;
+        }
+
+        synchronized Permit tryAcquire() {
+            if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+            }
+            if (state == State.OPEN || (state == State.HALF_OPEN && probeInFlight)) {
+                rejected++;
+                return Permit.DENIED;
+            }
+            calls++;
+            if (state == State.HALF_OPEN) {
+                probeInFlight = true;
+                return Permit.PROBE;
+            }
+            return Permit.CALL;
+        }
+
+        // Only the probe decides the half-open state, a slow call that started before the circuit opened doesn't
+        synchronized void onSuccess(boolean probe) {
+            consecutiveFailures = 0;
+            if (probe) {
+                probeInFlight = false;
+                if (state == State.HALF_OPEN) {
+                    state = State.CLOSED;
+                }
+            }
+        }
+
+        // Returns true if this failure opened the circuit
+        synchronized boolean onFailure(boolean probe) {
+            failures++;
+            consecutiveFailures++;
+            if (probe) {
+                probeInFlight = false;
+            }
+            if ((probe && state == State.HALF_OPEN)
+                    || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                state = State.OPEN;
+                openUntil = System.currentTimeMillis() + openMillis;
+                opened++;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("state", state == State.OPEN && System.currentTimeMillis() >= openUntil
+                    ? State.HALF_OPEN.name() : state.name());
+            stats.put("consecutiveFailures", consecutiveFailures);
+            stats.put("calls", calls);
+            stats.put("failures", failures);
+            stats.put("rejected", rejected);
+            stats.put("opened", opened);
+            stats.put("timeoutMillis", timeout.toMillis());
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.sc2006.petcare.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ * Shared outbound client for every Google Maps call.
+ * One java.net.http.HttpClient keeps TLS sessions and pooled keep-alive connections across calls and
+ * multiplexes requests over HTTP/2; each host is additionally capped at a fixed number of concurrent calls.
+ * A call's timeout covers the whole exchange: HttpRequest.timeout only bounds waiting for the headers, so a
+ * watchdog closes the body stream if reading it is still going when the timeout runs out.
+ */
+@Component
+public class MapsHttpClient {
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    private final HttpClient httpClient;
+    private final Duration readTimeout;
+    private final int maxPerHost;
+    private final long acquireTimeoutMillis;
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong http2Responses = new AtomicLong();
+    private final AtomicLong gzipResponses = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong permitRejections = new AtomicLong();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    public MapsHttpClient(
+            @Value("${google.maps.http.connect-timeout-ms:2000}") long connectTimeoutMillis,
+            @Value("${google.maps.http.read-timeout-ms:5000}") long readTimeoutMillis,
+            @Value("${google.maps.http.max-per-host:16}") int maxPerHost,
+            @Value("${google.maps.http.acquire-timeout-ms:2000}") long acquireTimeoutMillis) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                // Photo requests redirect to the image host
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.readTimeout = Duration.ofMillis(readTimeoutMillis);
+        this.maxPerHost = maxPerHost;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    // GET the URL and hand the (decompressed) body stream to the reader, which may stop early
+    public <T> T get(String url, BodyReader<T> reader) throws Exception {
+        return get(url, readTimeout, reader);
+    }
+
+    public <T> T get(String url, Duration timeout, BodyReader<T> reader) throws Exception {
+        URI uri = URI.create(url);
+        Semaphore permits = hostPermits.computeIfAbsent(uri.getHost(), host -> new Semaphore(maxPerHost));
+        if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            permitRejections.incrementAndGet();
+            throw new IOException("Too many concurrent requests to " + uri.getHost());
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        long start = System.currentTimeMillis();
+        inFlight.incrementAndGet();
+        requests.incrementAndGet();
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            if (response.version() == HttpClient.Version.HTTP_2) {
+                http2Responses.incrementAndGet();
+            }
+            // Closing the raw body wakes a blocked read, which then fails with an IOException
+            AtomicBoolean expired = new AtomicBoolean();
+            ScheduledFuture<?> watchdog = executorRegistry.schedule(() -> {
+                expired.set(true);
+                try {
+                    response.body().close();
+                } catch (IOException e) {
+                    // Already closed
+                }
+            }, Math.max(0, timeout.toMillis() - (System.currentTimeMillis() - start)), TimeUnit.MILLISECONDS);
+            // Closing the body returns the connection to the pool
+            try (InputStream body = decode(response)) {
+                if (response.statusCode() / 100 != 2) {
+                    throw new IOException("HTTP " + response.statusCode() + " from " + uri.getHost());
+                }
+                return reader.read(body);
+            } catch (IOException e) {
+                if (expired.get()) {
+                    throw new HttpTimeoutException("Response body from " + uri.getHost() + " not read within "
+                            + timeout.toMillis() + " ms");
+                }
+                throw e;
+            } finally {
+                watchdog.cancel(false);
+            }
+        } catch (HttpTimeoutException e) {
+            timeouts.incrementAndGet();
+            throw e;
+        } catch (Exception e) {
+            errors.incrementAndGet();
+            throw e;
+        } finally {
+            totalLatencyMillis.addAndGet(System.currentTimeMillis() - start);
+            inFlight.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long total = requests.get();
+        stats.put("requests", total);
+        stats.put("inFlight", inFlight.get());
+        stats.put("http2Responses", http2Responses.get());
+        stats.put("gzipResponses", gzipResponses.get());
+        stats.put("errors", errors.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("permitRejections", permitRejections.get());
+        stats.put("avgLatencyMillis", total == 0 ? 0 : totalLatencyMillis.get() / total);
+        Map<String, Object> hosts = new LinkedHashMap<>();
+        hostPermits.forEach((host, permits) -> hosts.put(host, maxPerHost - permits.availablePermits()));
+        stats.put("inFlightByHost", hosts);
+        stats.put("maxPerHost", maxPerHost);
+        return stats;
+    }
+
+    private InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+        if ("gzip".equalsIgnoreCase(encoding)) {
+            gzipResponses.incrementAndGet();
+            return new GZIPInputStream(response.body());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,285 @@
+package com.sc2006.petcare.services;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.GeoPoint;
+import com.sc2006.petcare.DTO.MissingPetFeedEventDTO;
+import com.sc2006.petcare.events.MissingPetFoundEvent;
+import com.sc2006.petcare.events.MissingPetReportedEvent;
+import com.sc2006.petcare.events.SightingReportedEvent;
+import com.sc2006.petcare.models.MissingPetModel;
+import com.sc2006.petcare.models.SightingModel;
+import com.sc2006.petcare.utils.GeoHash;
+
+/*
+ * In-process fan-out of new reports, found pets and sightings to live SSE subscribers.
+ * Publishing only appends to each subscriber's bounded buffer; a serial task per subscriber drains it on the SSE pool,
+ * so a slow client never holds up the writer, other clients or the IO pool. A subscriber whose buffer overflows, or
+ * whose current send has been blocked longer than the send timeout, is evicted and has to reconnect and refetch.
+ */
+@Component
+public class MissingPetEventBus {
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    @Value("${petcare.missing.stream.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${petcare.missing.stream.max-subscribers:1000}")
+    private int maxSubscribers;
+
+    // Keeps idle connections open through proxies and finds clients that went away
+    @Value("${petcare.missing.stream.heartbeat-ms:20000}")
+    private long heartbeatMillis;
+
+    @Value("${petcare.missing.stream.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    // A send blocked this long means the client stopped reading; checked on each heartbeat
+    @Value("${petcare.missing.stream.send-timeout-ms:10000}")
+    private long sendTimeoutMillis;
+
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong stalled = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private ExecutorRegistry.SerialTask heartbeatTask;
+
+    @PostConstruct
+    public void start() {
+        heartbeatTask = executorRegistry.scheduleWithFixedDelay(ExecutorRegistry.Pool.BACKGROUND, this::heartbeat,
+                heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Null when the subscriber limit is reached; the region is ignored unless all three values are given
+    public SseEmitter subscribe(Double latitude, Double longitude, Double radiusKm) {
+        if (subscribers.size() >= maxSubscribers) {
+            refused.incrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        boolean regional = latitude != null && longitude != null && radiusKm != null;
+        Subscriber subscriber = new Subscriber(nextId.incrementAndGet(), emitter,
+                regional ? latitude : 0, regional ? longitude : 0, regional ? radiusKm * 1000 : -1);
+        emitter.onCompletion(subscriber::closed);
+        emitter.onTimeout(subscriber::closed);
+        emitter.onError(error -> subscriber.closed());
+        subscribers.put(subscriber.id, subscriber);
+        subscriber.offer(SseEmitter.event().name("subscribed").data(subscriber.id));
+        return emitter;
+    }
+
+    @EventListener
+    public void onMissingPetReported(MissingPetReportedEvent event) {
+        publish(toFeedEvent("reported", event.getMissingPet()));
+    }
+
+    @EventListener
+    public void onMissingPetFound(MissingPetFoundEvent event) {
+        publish(toFeedEvent("found", event.getMissingPet()));
+    }
+
+    @EventListener
+    public void onSightingReported(SightingReportedEvent event) {
+        SightingModel sighting = event.getSighting();
+        MissingPetFeedEventDTO feedEvent = new MissingPetFeedEventDTO();
+        feedEvent.setType("sighting");
+        feedEvent.setSightingId(sighting.getId());
+        feedEvent.setMissingId(sighting.getMissingPet() != null ? sighting.getMissingPet().getId() : null);
+        feedEvent.setDescription(sighting.getSightingDescription());
+        setLocation(feedEvent, sighting.getSightingLocation());
+        feedEvent.setTime(toDate(sighting.getSightingDateTime()));
+        publish(feedEvent);
+    }
+
+    private static MissingPetFeedEventDTO toFeedEvent(String type, MissingPetModel missing) {
+        MissingPetFeedEventDTO feedEvent = new MissingPetFeedEventDTO();
+        feedEvent.setType(type);
+        feedEvent.setMissingId(missing.getId());
+        feedEvent.setDescription(missing.getLastSeenDescription());
+        setLocation(feedEvent, missing.getLastSeenLocation());
+        feedEvent.setTime(toDate(missing.getPublishedTime()));
+        return feedEvent;
+    }
+
+    private static void setLocation(MissingPetFeedEventDTO feedEvent, GeoPoint location) {
+        if (location != null) {
+            feedEvent.setLatitude(location.getLatitude());
+            feedEvent.setLongitude(location.getLongitude());
+        }
+    }
+
+    private static Date toDate(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toDate() : null;
+    }
+
+    private void publish(MissingPetFeedEventDTO feedEvent) {
+        published.incrementAndGet();
+        for (Subscriber subscriber : subscribers.values()) {
+            if (subscriber.accepts(feedEvent)) {
+                subscriber.offer(SseEmitter.event().name(feedEvent.getType()).data(feedEvent,
+                        MediaType.APPLICATION_JSON));
+            }
+        }
+    }
+
+    private void heartbeat() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers.values()) {
+            long sendingSince = subscriber.sendingSince;
+            if (sendingSince != 0 && now - sendingSince > TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis)) {
+                stalled.incrementAndGet();
+                subscriber.evictStalled();
+            } else {
+                subscriber.offer(SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int maxBuffered = 0;
+        for (Subscriber subscriber : subscribers.values()) {
+            maxBuffered = Math.max(maxBuffered, subscriber.buffer.size());
+        }
+        stats.put("subscribers", subscribers.size());
+        stats.put("maxSubscribers", maxSubscribers);
+        stats.put("bufferSize", bufferSize);
+        stats.put("maxBuffered", maxBuffered);
+        stats.put("published", published.get());
+        stats.put("delivered", delivered.get());
+        stats.put("evicted", evicted.get());
+        stats.put("stalled", stalled.get());
+        stats.put("refused", refused.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        heartbeatTask.cancel(5, TimeUnit.SECONDS);
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.close(false);
+        }
+    }
+
+    /* One SSE client; only its drain task ever touches the emitter, so a blocked send can't stall the publisher */
+    private class Subscriber {
+        private final long id;
+        private final SseEmitter emitter;
+        private final double latitude;
+        private final double longitude;
+        // Negative for no region filter
+        private final double radiusMetres;
+        private final ArrayBlockingQueue<SseEmitter.SseEventBuilder> buffer;
+        private final ExecutorRegistry.SerialTask drainTask;
+        private volatile boolean closing;
+        private volatile boolean evictedForLag;
+        private volatile boolean done;
+        // System.nanoTime() when the send in progress started, 0 when not sending
+        private volatile long sendingSince;
+
+        Subscriber(long id, SseEmitter emitter, double latitude, double longitude, double radiusMetres) {
+            this.id = id;
+            this.emitter = emitter;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radiusMetres = radiusMetres;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+            this.drainTask = executorRegistry.serial(ExecutorRegistry.Pool.SSE, this::drain);
+        }
+
+        boolean accepts(MissingPetFeedEventDTO feedEvent) {
+            return radiusMetres < 0 || GeoHash.distanceMetres(latitude, longitude, feedEvent.getLatitude(),
+                    feedEvent.getLongitude()) <= radiusMetres;
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (closing) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                evicted.incrementAndGet();
+                close(true);
+                return;
+            }
+            drainTask.trigger();
+        }
+
+        // Stop accepting events and let the drain task end the stream
+        void close(boolean forLag) {
+            evictedForLag = forLag;
+            closing = true;
+            subscribers.remove(id);
+            buffer.clear();
+            if (!drainTask.trigger() && !done) {
+                // No drain will run to end the stream, so end it here
+                done = true;
+                emitter.complete();
+            }
+        }
+
+        // The blocked send holds the emitter's lock, so only drop the subscriber here; the send fails once the
+        // container's write timeout closes the connection, and the drain task then ends
+        void evictStalled() {
+            evicted.incrementAndGet();
+            closed();
+        }
+
+        // The emitter completed, timed out or failed on its own
+        void closed() {
+            done = true;
+            closing = true;
+            subscribers.remove(id);
+            buffer.clear();
+        }
+
+        private void drain() {
+            SseEmitter.SseEventBuilder event;
+            while (!closing && (event = buffer.poll()) != null) {
+                try {
+                    sendingSince = System.nanoTime();
+                    emitter.send(event);
+                    delivered.incrementAndGet();
+                } catch (Exception e) {
+                    // Client went away
+                    closed();
+                    emitter.completeWithError(e);
+                    return;
+                } finally {
+                    sendingSince = 0;
+                }
+            }
+            if (closing && !done) {
+                done = true;
+                try {
+                    if (evictedForLag) {
+                        emitter.send(SseEmitter.event().name("evicted").data("Too far behind, reconnect"));
+                    }
+                    emitter.complete();
+                } catch (Exception e) {
+                    emitter.completeWithError(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.sc2006.petcare.services;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.GeoPoint;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import com.sc2006.petcare.utils.GeoHash;
+
+/*
+ * One-off migration that adds the geohash field to MissingPet and MissingPetSighting documents
+ * written before nearby queries existed, so they show up in radius searches. Sightings also get
+ * the active flag of their missing pet, which nearby sighting queries filter on.
+ */
+@Service
+public class MissingPetGeohashBackfillService {
+    // Stay below the Firestore limit of 500 writes per batch
+    private static final int MAX_BATCH_WRITES = 450;
+
+    @Autowired
+    private Firestore dbFireStore;
+
+    public synchronized Map<String, Object> backfill() throws Exception {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("missingPets", backfill("MissingPet", "lastSeenLocation"));
+        result.put("sightings", backfill("MissingPetSighting", "sightingLocation"));
+        result.put("sightingActiveFlags", backfillSightingActive());
+        return result;
+    }
+
+    private Map<String, Object> backfillSightingActive() throws Exception {
+        Map<String, Boolean> activeByPath = new HashMap<>();
+        for (QueryDocumentSnapshot document : dbFireStore.collection("MissingPet").get().get().getDocuments()) {
+            activeByPath.put(document.getReference().getPath(), Boolean.TRUE.equals(document.getBoolean("active")));
+        }
+
+        long scanned = 0;
+        long updated = 0;
+        WriteBatch batch = dbFireStore.batch();
+        int batchWrites = 0;
+        for (QueryDocumentSnapshot document : dbFireStore.collection("MissingPetSighting").get().get().getDocuments()) {
+            scanned++;
+            DocumentReference missingPet = document.get("missingPet", DocumentReference.class);
+            // Sightings of deleted pets count as inactive
+            boolean active = missingPet != null && Boolean.TRUE.equals(activeByPath.get(missingPet.getPath()));
+            if (Boolean.valueOf(active).equals(document.getBoolean("active"))) {
+                continue;
+            }
+            batch.update(document.getReference(), "active", active);
+            batchWrites++;
+            updated++;
+            if (batchWrites >= MAX_BATCH_WRITES) {
+                batch.commit().get();
+                batch = dbFireStore.batch();
+                batchWrites = 0;
+            }
+        }
+        if (batchWrites > 0) {
+            batch.commit().get();
+        }
+        System.out.println("Sighting active backfill updated " + updated + " of " + scanned + " sightings");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("scanned", scanned);
+        result.put("updated", updated);
+        return result;
+    }
+
+    private Map<String, Object> backfill(String collection, String locationField) throws Exception {
+        long scanned = 0;
+        long updated = 0;
+        long withoutLocation = 0;
+
+        WriteBatch batch = dbFireStore.batch();
+        int batchWrites = 0;
+        for (QueryDocumentSnapshot document : dbFireStore.collection(collection).get().get().getDocuments()) {
+            scanned++;
+            GeoPoint location = document.getGeoPoint(locationField);
+            if (location == null) {
+                withoutLocation++;
+                continue;
+            }
+            String geohash = GeoHash.encode(location.getLatitude(), location.getLongitude(),
+                    MissingPetService.GEOHASH_PRECISION);
+            if (geohash.equals(document.getString("geohash"))) {
+                continue;
+            }
+            batch.update(document.getReference(), "geohash", geohash);
+            batchWrites++;
+            updated++;
+            if (batchWrites >= MAX_BATCH_WRITES) {
+                batch.commit().get();
+                batch = dbFireStore.batch();
+                batchWrites = 0;
+            }
+        }
+        if (batchWrites > 0) {
+            batch.commit().get();
+        }
+        System.out.println("Geohash backfill updated " + updated + " of " + scanned + " " + collection + " documents");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("scanned", scanned);
+        result.put("updated", updated);
+        result.put("withoutLocation", withoutLocation);
+        return result;
+    }
+}
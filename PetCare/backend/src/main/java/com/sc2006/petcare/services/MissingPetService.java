@@ -1,11 +1,15 @@
 package com.sc2006.petcare.services;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -17,17 +21,23 @@ import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.GeoPoint;
 import com.sc2006.petcare.DTO.MissingPetDTO;
 import com.sc2006.petcare.DTO.MissingPetInputDTO;
+import com.sc2006.petcare.DTO.MissingPetPageDTO;
 import com.sc2006.petcare.models.MissingPetModel;
 import com.sc2006.petcare.models.PetModel;
 import com.sc2006.petcare.models.SightingModel;
 import com.sc2006.petcare.models.UserModel;
+import com.sc2006.petcare.repositories.DocumentLoader;
 import com.sc2006.petcare.repositories.MissingPetRepository;
 import com.sc2006.petcare.repositories.PetRepository;
 import com.sc2006.petcare.repositories.SightingRepository;
 import com.sc2006.petcare.repositories.UserRepository;
+import com.sc2006.petcare.utils.GeoHash;
 
 @Service
 public class MissingPetService {
+    // Precision 9 cells are about 5 m across, fine enough for any radius query prefix
+    public static final int GEOHASH_PRECISION = 9;
+
     @Autowired
     private final MissingPetRepository missingRepository;
 
@@ -43,21 +53,124 @@ public class MissingPetService {
     @Autowired
     private FirebaseService firebaseService;
 
+    @Value("${petcare.missing.page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${petcare.missing.max-page-size:200}")
+    private int maxPageSize;
+
+    @Value("${petcare.missing.max-radius-km:50}")
+    private double maxRadiusKm;
+
     public MissingPetService(MissingPetRepository missingRepository) {
         this.missingRepository = missingRepository;
     }
 
-    public List<MissingPetDTO> getAllMissingPets() {
+    // One page of active reports, newest first; throws IllegalArgumentException for a malformed cursor
+    public MissingPetPageDTO getAllMissingPets(Integer pageSize, String cursor) {
+        int limit = pageSize == null ? defaultPageSize : Math.max(1, Math.min(pageSize, maxPageSize));
+        Timestamp afterPublishedTime = null;
+        String afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] position = decodeCursor(cursor);
+            afterPublishedTime = Timestamp.ofTimeSecondsAndNanos(Long.parseLong(position[0]),
+                    Integer.parseInt(position[1]));
+            afterId = position[2];
+        }
+
+        MissingPetPageDTO page = new MissingPetPageDTO();
+        List<MissingPetModel> missingList;
+        try {
+            // One extra document tells whether there is a next page
+            missingList = missingRepository.getActiveMissingPets(limit + 1, afterPublishedTime, afterId);
+        } catch (Exception e) {
+            System.err.println("Error retrieving missing pets: " + e.getMessage());
+            e.printStackTrace();
+            page.setMissingPets(new ArrayList<>());
+            return page;
+        }
+        if (missingList.size() > limit) {
+            missingList = missingList.subList(0, limit);
+            page.setNextCursor(encodeCursor(missingList.get(limit - 1)));
+        }
+
+        List<MissingPetDTO> missingPets = toMissingPetDTOs(missingList);
+        if (missingPets == null) {
+            return null;
+        }
+        page.setMissingPets(missingPets);
+        return page;
+    }
+
+    // Active reports last seen within radiusKm of the point, newest first; throws IllegalArgumentException for a bad radius
+    public List<MissingPetDTO> getMissingPetsNearby(double latitude, double longitude, double radiusKm,
+            Integer limit) {
+        if (radiusKm <= 0 || radiusKm > maxRadiusKm) {
+            throw new IllegalArgumentException("radiusKm must be between 0 and " + maxRadiusKm);
+        }
+        int radiusMetres = (int) Math.round(radiusKm * 1000);
+        int maxResults = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        List<MissingPetModel> nearby = new ArrayList<>();
+        try {
+            for (MissingPetModel missing : missingRepository
+                    .findActiveInCells(GeoHash.coveringCells(latitude, longitude, radiusMetres))) {
+                // The covering cells are larger than the circle
+                GeoPoint location = missing.getLastSeenLocation();
+                if (location != null && GeoHash.distanceMetres(latitude, longitude, location.getLatitude(),
+                        location.getLongitude()) <= radiusMetres) {
+                    nearby.add(missing);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error retrieving nearby missing pets: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+        nearby.sort(Comparator.comparing(MissingPetModel::getPublishedTime,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        if (nearby.size() > maxResults) {
+            nearby = nearby.subList(0, maxResults);
+        }
+        return toMissingPetDTOs(nearby);
+    }
+
+    // Position of a report in publishedTime DESC, id DESC order
+    static String encodeCursor(MissingPetModel missing) {
+        Timestamp publishedTime = missing.getPublishedTime();
+        String position = publishedTime.getSeconds() + ":" + publishedTime.getNanos() + ":" + missing.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String[] decodeCursor(String cursor) {
+        String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+        if (position.length != 3 || position[2].isEmpty()) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return position;
+    }
+
+    private List<MissingPetDTO> toMissingPetDTOs(List<MissingPetModel> missingList) {
         List<MissingPetDTO> sightingDetailsDTOs = new ArrayList<>();
-        List<MissingPetModel> missingList = new ArrayList<>();
         UserModel ownerContact;
         PetModel petDetails;
 
         try {
-            missingList = missingRepository.getAllMissingPets();
             if (missingList.isEmpty()) {
                 System.out.println("No missing pets found in Firestore.");
             }
+
+            // Resolve every pet, owner and sighting the response needs in one batched read
+            DocumentLoader loader = missingRepository.newDocumentLoader();
+            for (MissingPetModel missing : missingList) {
+                if (missing.isActive()) {
+                    loader.load(missing.getMissingPet());
+                    loader.load(missing.getOwner());
+                    loader.loadAll(missing.getSightingList());
+                }
+            }
+            loader.dispatch();
+
             for (MissingPetModel missing : missingList) {
                 if (missing.isActive()) {
 
@@ -84,10 +197,8 @@ public class MissingPetService {
                     missingDetailsDTO.setPublishedTime(publishedTime);
 
                     try {
-                        // Fetch the document snapshot from the reference
-                        ApiFuture<DocumentSnapshot> future = missing.getMissingPet().get();
-                        DocumentSnapshot document = future.get();
-                        if (document.exists()) {
+                        DocumentSnapshot document = loader.get(missing.getMissingPet());
+                        if (document != null && document.exists()) {
                             // Convert the document snapshot to a UserModel object
                             petDetails = document.toObject(PetModel.class);
                             if (petDetails != null) {
@@ -108,10 +219,8 @@ public class MissingPetService {
                     missingDetailsDTO.setMissingPet(petDetails);
 
                     try {
-                        // Fetch the document snapshot from the reference
-                        ApiFuture<DocumentSnapshot> future = missing.getOwner().get();
-                        DocumentSnapshot document = future.get();
-                        if (document.exists()) {
+                        DocumentSnapshot document = loader.get(missing.getOwner());
+                        if (document != null && document.exists()) {
                             // Convert the document snapshot to a UserModel object
                             ownerContact = document.toObject(UserModel.class);
                         } else {
@@ -128,9 +237,8 @@ public class MissingPetService {
                     List<SightingModel> sightings = new ArrayList<>();
                     for (DocumentReference sightingRef : missing.getSightingList()) {
                         try {
-                            ApiFuture<DocumentSnapshot> future = sightingRef.get();
-                            DocumentSnapshot document = future.get();
-                            if (document.exists()) {
+                            DocumentSnapshot document = loader.get(sightingRef);
+                            if (document != null && document.exists()) {
                                 SightingModel sighting = document.toObject(SightingModel.class);
                                 sightings.add(sighting);
                             } else {
@@ -299,6 +407,7 @@ public class MissingPetService {
         // Set GeoPoint for the location
         GeoPoint geoPoint = new GeoPoint(missingDTO.getLatitude(), missingDTO.getLongitude());
         missingModel.setLastSeenLocation(geoPoint);
+        missingModel.setGeohash(GeoHash.encode(missingDTO.getLatitude(), missingDTO.getLongitude(), GEOHASH_PRECISION));
 
         // upload image to firebase storage
         String imageURL = "missing_pet_first_sighting/" + missingDTO.getLastSeenImage().getOriginalFilename();
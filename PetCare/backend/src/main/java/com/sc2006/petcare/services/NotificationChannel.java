@@ -0,0 +1,19 @@
+package com.sc2006.petcare.services;
+
+import java.util.List;
+
+import com.sc2006.petcare.DTO.ProximityAlertDTO;
+import com.sc2006.petcare.models.UserModel;
+
+/* A way of delivering proximity alerts; ProximityAlertService sends every alert through each enabled channel */
+public interface NotificationChannel {
+    String name();
+
+    boolean isEnabled();
+
+    // Most recipients a single send() may be given
+    int maxBatchSize();
+
+    // Deliver to the recipients this channel can reach, returning how many were sent to
+    int send(ProximityAlertDTO alert, List<UserModel> recipients) throws Exception;
+}
@@ -0,0 +1,485 @@
+package com.sc2006.petcare.services;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/*
+ * Background pipeline turning each Places photo into fixed-size JPEG thumbnails for map pins, list cards and
+ * the detail view. The original is fetched once through PlacePhotoService, every size is written under the
+ * SHA-256 of its bytes (so the files are immutable and identical images share one file), and a small manifest
+ * per photo reference records which file holds which size. Until a photo has been processed its URLs point at
+ * the on-demand endpoint, which runs the same pipeline synchronously. Thumbnails and manifests share a byte
+ * budget; past it the least recently used photo's manifest and the files no other photo uses are deleted.
+ */
+@Service
+public class PhotoThumbnailService {
+    public static final String THUMBNAIL_PATH = "/api/googlemaps/thumbnail/";
+
+    public enum Size {
+        // Pins are cropped square, the other sizes keep the photo's aspect ratio
+        PIN(96, true, 0.70f), CARD(320, false, 0.75f), DETAIL(800, false, 0.80f);
+
+        final int width;
+        final boolean square;
+        final float quality;
+
+        Size(int width, boolean square, float quality) {
+            this.width = width;
+            this.square = square;
+            this.quality = quality;
+        }
+
+        public String key() {
+            return name().toLowerCase();
+        }
+
+        public static Size parse(String value) {
+            return valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    @Autowired
+    private PlacePhotoService photoService;
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    @Value("${google.maps.thumbnails.dir:${java.io.tmpdir}/petcare-thumbnails}")
+    private String thumbnailDir;
+
+    @Value("${google.maps.thumbnails.prefetch:true}")
+    private boolean prefetch;
+
+    @Value("${google.maps.thumbnails.max-bytes:134217728}")
+    private long maxBytes;
+
+    // 0 means one per available core
+    @Value("${google.maps.thumbnails.max-decodes:0}")
+    private int maxDecodes;
+
+    private Path thumbnailRoot;
+    // photo reference hash -> size -> content hash of the thumbnail file, in access order for LRU eviction
+    private final LinkedHashMap<String, Map<Size, String>> variants = new LinkedHashMap<>(16, 0.75f, true);
+    // content hash -> number of manifests using the file, identical images share one file
+    private final Map<String, Integer> fileUses = new HashMap<>();
+    private final Map<String, Long> fileBytes = new HashMap<>();
+    // Thumbnail files plus manifests
+    private long totalBytes;
+    private final Map<String, CompletableFuture<Map<Size, String>>> inFlight = new ConcurrentHashMap<>();
+    // Reference hashes waiting in or running on the background queue
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    // Decoded bitmaps held at once, the CPU pool alone runs overflow on the caller
+    private Semaphore decodePermits;
+
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final Map<Size, AtomicLong> bytesBySize = new EnumMap<>(Size.class);
+
+    @PostConstruct
+    public void loadManifests() throws IOException {
+        thumbnailRoot = Paths.get(thumbnailDir);
+        decodePermits = new Semaphore(maxDecodes > 0 ? maxDecodes : Runtime.getRuntime().availableProcessors());
+        Files.createDirectories(thumbnailRoot);
+        for (Size size : Size.values()) {
+            bytesBySize.put(size, new AtomicLong());
+        }
+        // Photos processed by a previous run don't need to be fetched again, oldest first so they are evicted first
+        List<Path> manifests;
+        try (Stream<Path> files = Files.list(thumbnailRoot)) {
+            manifests = files.filter(path -> path.toString().endsWith(".sizes"))
+                    .sorted(Comparator.comparingLong(path -> path.toFile().lastModified()))
+                    .collect(Collectors.toList());
+        }
+        synchronized (this) {
+            for (Path manifest : manifests) {
+                Map<Size, String> hashes = readManifest(manifest);
+                if (hashes == null) {
+                    deleteQuietly(manifest);
+                    continue;
+                }
+                String fileName = manifest.getFileName().toString();
+                register(fileName.substring(0, fileName.length() - ".sizes".length()), hashes);
+            }
+            // Thumbnails whose manifest was never written or has been dropped
+            try (Stream<Path> files = Files.list(thumbnailRoot)) {
+                files.filter(path -> path.toString().endsWith(".jpg")).forEach(path -> {
+                    String fileName = path.getFileName().toString();
+                    if (!fileUses.containsKey(fileName.substring(0, fileName.length() - ".jpg".length()))) {
+                        deleteQuietly(path);
+                    }
+                });
+            }
+            evictIfNeeded();
+        }
+    }
+
+    // URL per size: the immutable thumbnail once processed, the on-demand endpoint until then
+    public Map<String, String> urlsFor(String photoReference) {
+        if (photoReference == null) {
+            return null;
+        }
+        Map<Size, String> hashes = processed(PlacePhotoService.hash(photoReference));
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (Size size : Size.values()) {
+            urls.put(size.key(), hashes != null ? THUMBNAIL_PATH + hashes.get(size) + ".jpg"
+                    : PlacePhotoService.PHOTO_PATH + photoReference + "/" + size.key());
+        }
+        return urls;
+    }
+
+    // Queue the photo for processing in the background, if it isn't processed or queued already
+    public void schedule(String photoReference) {
+        if (!prefetch || photoReference == null) {
+            return;
+        }
+        String refHash = PlacePhotoService.hash(photoReference);
+        if (processed(refHash) != null || !queued.add(refHash)) {
+            return;
+        }
+        try {
+            executorRegistry.executor(ExecutorRegistry.Pool.BACKGROUND).execute(() -> {
+                try {
+                    process(photoReference);
+                } catch (Exception e) {
+                    System.err.println("Error generating thumbnails for photo: " + e.getMessage());
+                } finally {
+                    queued.remove(refHash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.remove(refHash);
+            dropped.incrementAndGet(); // Generated on demand instead
+        }
+    }
+
+    // The thumbnail file for one size of a photo, processing the photo now if needed
+    public Path getVariant(String photoReference, Size size) throws Exception {
+        // Same rule as the original, only references handed out by a search
+        if (!photoService.isKnown(photoReference)) {
+            throw new IllegalArgumentException("Unknown photo reference");
+        }
+        return thumbnailRoot.resolve(process(photoReference).get(size) + ".jpg");
+    }
+
+    // A processed thumbnail by content hash, or null if there is no such file
+    public Path getThumbnail(String fileName) {
+        if (!fileName.matches("[0-9a-f]{64}\\.jpg")) {
+            return null;
+        }
+        Path path = thumbnailRoot.resolve(fileName);
+        return Files.exists(path) ? path : null;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("photos", variants.size());
+            stats.put("bytes", totalBytes);
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("generated", generated.get());
+        stats.put("failed", failed.get());
+        stats.put("dropped", dropped.get());
+        stats.put("evicted", evicted.get());
+        stats.put("queued", queued.size());
+        stats.put("decodesWaiting", decodePermits.getQueueLength());
+        Map<String, Object> averageBytes = new LinkedHashMap<>();
+        for (Size size : Size.values()) {
+            averageBytes.put(size.key(), generated.get() == 0 ? 0 : bytesBySize.get(size).get() / generated.get());
+        }
+        stats.put("averageBytes", averageBytes);
+        return stats;
+    }
+
+    private Map<Size, String> process(String photoReference) throws Exception {
+        String refHash = PlacePhotoService.hash(photoReference);
+        Map<Size, String> hashes = processed(refHash);
+        if (hashes != null) {
+            return hashes;
+        }
+        CompletableFuture<Map<Size, String>> result = new CompletableFuture<>();
+        CompletableFuture<Map<Size, String>> existing = inFlight.putIfAbsent(refHash, result);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            hashes = save(refHash, generate(photoReference));
+            generated.incrementAndGet();
+            result.complete(hashes);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            result.completeExceptionally(e);
+        } finally {
+            inFlight.remove(refHash);
+        }
+        return join(result);
+    }
+
+    private synchronized Map<Size, String> processed(String refHash) {
+        return variants.get(refHash);
+    }
+
+    private Map<Size, byte[]> generate(String photoReference) throws Exception {
+        byte[] original;
+        try (InputStream in = photoService.openPhoto(photoReference)) {
+            original = in.readAllBytes();
+        }
+        // Decoding holds the full bitmap in memory, so wait for a permit before handing it to the CPU pool
+        decodePermits.acquire();
+        Map<Size, byte[]> encoded;
+        try {
+            encoded = join(executorRegistry.supplyAsync(ExecutorRegistry.Pool.CPU, () -> {
+                try {
+                    BufferedImage source = ImageIO.read(new ByteArrayInputStream(original));
+                    if (source == null) {
+                        throw new IOException("Unsupported image format");
+                    }
+                    Map<Size, byte[]> sizes = new EnumMap<>(Size.class);
+                    for (Size size : Size.values()) {
+                        sizes.put(size, encodeJpeg(resize(source, size), size.quality));
+                    }
+                    return sizes;
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }));
+        } finally {
+            decodePermits.release();
+        }
+        for (Map.Entry<Size, byte[]> entry : encoded.entrySet()) {
+            bytesBySize.get(entry.getKey()).addAndGet(entry.getValue().length);
+        }
+        return encoded;
+    }
+
+    // Under the lock so eviction can't delete a shared file between storing it and recording its new user
+    private synchronized Map<Size, String> save(String refHash, Map<Size, byte[]> encoded) throws Exception {
+        Map<Size, String> hashes = new EnumMap<>(Size.class);
+        for (Map.Entry<Size, byte[]> entry : encoded.entrySet()) {
+            hashes.put(entry.getKey(), store(entry.getValue()));
+        }
+        writeManifest(refHash, hashes);
+        register(refHash, hashes);
+        evictIfNeeded();
+        return hashes;
+    }
+
+    // Caller holds the lock
+    private void register(String refHash, Map<Size, String> hashes) {
+        Map<Size, String> previous = variants.put(refHash, hashes);
+        if (previous != null) {
+            release(previous);
+        } else {
+            totalBytes += sizeOf(thumbnailRoot.resolve(refHash + ".sizes"));
+        }
+        for (String hash : new HashSet<>(hashes.values())) {
+            if (fileUses.merge(hash, 1, Integer::sum) == 1) {
+                long size = sizeOf(thumbnailRoot.resolve(hash + ".jpg"));
+                fileBytes.put(hash, size);
+                totalBytes += size;
+            }
+        }
+    }
+
+    // Caller holds the lock
+    private void evictIfNeeded() {
+        while (totalBytes > maxBytes && variants.size() > 1) {
+            String eldest = variants.keySet().iterator().next();
+            Map<Size, String> hashes = variants.remove(eldest);
+            Path manifest = thumbnailRoot.resolve(eldest + ".sizes");
+            totalBytes -= sizeOf(manifest);
+            deleteQuietly(manifest);
+            release(hashes);
+            evicted.incrementAndGet();
+        }
+    }
+
+    // Drop one user of each file, deleting files nobody uses any more
+    private void release(Map<Size, String> hashes) {
+        for (String hash : new HashSet<>(hashes.values())) {
+            int uses = fileUses.getOrDefault(hash, 1) - 1;
+            if (uses > 0) {
+                fileUses.put(hash, uses);
+                continue;
+            }
+            fileUses.remove(hash);
+            Long size = fileBytes.remove(hash);
+            totalBytes -= size != null ? size : 0;
+            deleteQuietly(thumbnailRoot.resolve(hash + ".jpg"));
+        }
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Error deleting thumbnail file " + path.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, Size size) {
+        int sourceX = 0;
+        int sourceY = 0;
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+        if (size.square) {
+            // Centre crop
+            int side = Math.min(sourceWidth, sourceHeight);
+            sourceX = (sourceWidth - side) / 2;
+            sourceY = (sourceHeight - side) / 2;
+            sourceWidth = side;
+            sourceHeight = side;
+        }
+        // Never upscale past the original
+        int width = Math.min(size.width, sourceWidth);
+        int height = Math.max(1, Math.round((float) sourceHeight * width / sourceWidth));
+
+        BufferedImage current = source.getSubimage(sourceX, sourceY, sourceWidth, sourceHeight);
+        // Halve in steps first, a single large bilinear downscale aliases badly
+        while (current.getWidth() / 2 >= width) {
+            current = draw(current, current.getWidth() / 2, Math.max(1, current.getHeight() / 2));
+        }
+        return draw(current, width, height);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        // JPEG has no alpha, transparent areas become white
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.drawImage(source, 0, 0, width, height, null);
+        graphics.dispose();
+        return target;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            // No metadata is carried over from the original
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    // Content-addressed, so an existing file with the same hash already holds these bytes
+    private String store(byte[] jpeg) throws Exception {
+        String hash = sha256(jpeg);
+        Path path = thumbnailRoot.resolve(hash + ".jpg");
+        if (!Files.exists(path)) {
+            Path temp = Files.createTempFile(thumbnailRoot, hash, ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                out.write(jpeg);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return hash;
+    }
+
+    private void writeManifest(String refHash, Map<Size, String> hashes) throws IOException {
+        Properties manifest = new Properties();
+        hashes.forEach((size, hash) -> manifest.setProperty(size.key(), hash));
+        Path temp = Files.createTempFile(thumbnailRoot, refHash, ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            manifest.store(out, null);
+        }
+        Files.move(temp, thumbnailRoot.resolve(refHash + ".sizes"), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Null if the manifest is incomplete or one of its files is gone
+    private Map<Size, String> readManifest(Path manifestPath) {
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(manifestPath)) {
+            manifest.load(in);
+        } catch (IOException e) {
+            return null;
+        }
+        Map<Size, String> hashes = new EnumMap<>(Size.class);
+        for (Size size : Size.values()) {
+            String hash = manifest.getProperty(size.key());
+            if (hash == null || !Files.exists(thumbnailRoot.resolve(hash + ".jpg"))) {
+                return null;
+            }
+            hashes.put(size, hash);
+        }
+        return hashes;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,270 @@
+package com.sc2006.petcare.services;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/*
+ * Serves Google Places photos from a size-bounded on-disk cache.
+ * Each photo reference is downloaded once, stored under the SHA-256 of the reference,
+ * and evicted least recently used first once the cache grows past its byte budget.
+ * Readers get a stream opened under the cache lock, so eviction can't delete a file before it is open.
+ * Only references this server has handed out in a search result or stored amenity are served,
+ * so the endpoint can't be used to spend the Places quota on arbitrary references.
+ */
+@Service
+public class PlacePhotoService {
+    public static final String PHOTO_PATH = "/api/googlemaps/photo/";
+    // Places photo references are URL-safe base64
+    private static final Pattern PHOTO_REFERENCE = Pattern.compile("[A-Za-z0-9_-]{1,2048}");
+
+    @Value("${google.maps.api.key}")
+    private String apiKey;
+
+    // Overridden to point at a local stand-in for load testing
+    @Value("${google.maps.base-url:https://maps.googleapis.com}")
+    private String baseUrl;
+
+    @Autowired
+    private MapsHttpClient mapsHttpClient;
+
+    @Autowired
+    private PlacesQuotaGovernor quotaGovernor;
+
+    @Autowired
+    private MapsCircuitBreaker circuitBreaker;
+
+    @Value("${google.maps.photo-cache.dir:${java.io.tmpdir}/petcare-photos}")
+    private String cacheDir;
+
+    @Value("${google.maps.photo-cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    // Large enough for the biggest thumbnail size
+    @Value("${google.maps.photo.max-width:800}")
+    private int maxWidth;
+
+    @Value("${google.maps.photo.max-known-references:100000}")
+    private int maxKnownReferences;
+
+    private Path cacheRoot;
+    // hash -> file size, in access order for LRU eviction
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<byte[]>> downloads = new ConcurrentHashMap<>();
+    private long totalBytes;
+    // Hashes of references returned to clients, least recently used first
+    private final LinkedHashMap<String, Boolean> knownReferences = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > maxKnownReferences;
+        }
+    };
+
+    @PostConstruct
+    public void loadCache() throws IOException {
+        cacheRoot = Paths.get(cacheDir);
+        Files.createDirectories(cacheRoot);
+        // Re-index photos left from a previous run, oldest first so they are evicted first
+        try (Stream<Path> files = Files.list(cacheRoot)) {
+            List<Path> cached = files.filter(path -> path.toString().endsWith(".img"))
+                    .sorted(Comparator.comparingLong(path -> path.toFile().lastModified()))
+                    .collect(Collectors.toList());
+            synchronized (this) {
+                for (Path path : cached) {
+                    String fileName = path.getFileName().toString();
+                    long size = Files.size(path);
+                    entries.put(fileName.substring(0, fileName.length() - ".img".length()), size);
+                    totalBytes += size;
+                }
+                evictIfNeeded();
+            }
+        }
+    }
+
+    // URL carried by PlaceDetailsDTO instead of the inline image
+    public static String photoUrl(String photoReference) {
+        return photoReference == null ? null : PHOTO_PATH + photoReference;
+    }
+
+    // The reference inside a URL built by photoUrl(), or null
+    public static String referenceFromUrl(String photoUrl) {
+        return photoUrl != null && photoUrl.startsWith(PHOTO_PATH) ? photoUrl.substring(PHOTO_PATH.length()) : null;
+    }
+
+    public static boolean isValidReference(String photoReference) {
+        return photoReference != null && PHOTO_REFERENCE.matcher(photoReference).matches();
+    }
+
+    // Record a reference handed out to clients so it may be fetched
+    public void allow(String photoReference) {
+        if (isValidReference(photoReference)) {
+            String hash = hash(photoReference);
+            synchronized (this) {
+                knownReferences.put(hash, Boolean.TRUE);
+            }
+        }
+    }
+
+    // Handed out since startup, or already in the photo cache from an earlier run
+    public boolean isKnown(String photoReference) {
+        if (!isValidReference(photoReference)) {
+            return false;
+        }
+        String hash = hash(photoReference);
+        synchronized (this) {
+            return knownReferences.get(hash) != null || entries.containsKey(hash);
+        }
+    }
+
+    public String etagFor(String photoReference) {
+        return "\"" + hash(photoReference) + "\"";
+    }
+
+    // Open the cached photo, downloading it once if needed; the caller closes the stream
+    public BufferedInputStream openPhoto(String photoReference) throws Exception {
+        if (!isKnown(photoReference)) {
+            throw new IllegalArgumentException("Unknown photo reference");
+        }
+        String hash = hash(photoReference);
+        synchronized (this) {
+            if (entries.get(hash) != null) {
+                try {
+                    // An open file stays readable even if it is evicted and deleted afterwards
+                    return new BufferedInputStream(Files.newInputStream(cacheRoot.resolve(hash + ".img")));
+                } catch (NoSuchFileException e) {
+                    totalBytes -= entries.remove(hash);
+                }
+            }
+        }
+        CompletableFuture<byte[]> download = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = downloads.putIfAbsent(hash, download);
+        if (existing != null) {
+            return new BufferedInputStream(new ByteArrayInputStream(join(existing)));
+        }
+        try {
+            byte[] image = fetchPhoto(photoReference);
+            store(hash, image);
+            download.complete(image);
+        } catch (Exception e) {
+            download.completeExceptionally(e);
+        } finally {
+            downloads.remove(hash);
+        }
+        return new BufferedInputStream(new ByteArrayInputStream(join(download)));
+    }
+
+    public boolean isCached(String photoReference) {
+        if (photoReference == null) {
+            return false;
+        }
+        synchronized (this) {
+            return entries.containsKey(hash(photoReference));
+        }
+    }
+
+    // Sniffs the first bytes of a stream from openPhoto() and rewinds it
+    public String contentType(BufferedInputStream photo) throws IOException {
+        byte[] header = new byte[4];
+        photo.mark(header.length);
+        int read = photo.readNBytes(header, 0, header.length);
+        photo.reset();
+        if (read >= 4 && header[0] == (byte) 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G') {
+            return "image/png";
+        }
+        return "image/jpeg";
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("photos", entries.size());
+        stats.put("bytes", totalBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("knownReferences", knownReferences.size());
+        return stats;
+    }
+
+    private byte[] fetchPhoto(String photoReference) throws Exception {
+        // Photos are the first thing shed when the Places budget runs low
+        if (!quotaGovernor.tryAcquire(PlacesQuotaGovernor.Endpoint.PHOTO)) {
+            throw new PlacesQuotaGovernor.QuotaExceededException("Photo quota exhausted");
+        }
+        String photoUrl = String.format(
+                baseUrl + "/maps/api/place/photo?maxwidth=%d&photoreference=%s&key=%s",
+                maxWidth, URLEncoder.encode(photoReference, StandardCharsets.UTF_8), apiKey);
+        return circuitBreaker.call(MapsCircuitBreaker.Circuit.PHOTO, () -> mapsHttpClient.get(photoUrl,
+                circuitBreaker.timeout(MapsCircuitBreaker.Circuit.PHOTO), InputStream::readAllBytes));
+    }
+
+    private void store(String hash, byte[] image) throws IOException {
+        Path path = cacheRoot.resolve(hash + ".img");
+        Path temp = Files.createTempFile(cacheRoot, hash, ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            out.write(image);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this) {
+            Long previous = entries.put(hash, (long) image.length);
+            totalBytes += image.length - (previous != null ? previous : 0);
+            evictIfNeeded();
+        }
+    }
+
+    private void evictIfNeeded() {
+        while (totalBytes > maxBytes && entries.size() > 1) {
+            String eldest = entries.keySet().iterator().next();
+            totalBytes -= entries.remove(eldest);
+            try {
+                Files.deleteIfExists(cacheRoot.resolve(eldest + ".img"));
+            } catch (IOException e) {
+                System.err.println("Error evicting cached photo " + eldest + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    static String hash(String photoReference) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest(photoReference.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+}
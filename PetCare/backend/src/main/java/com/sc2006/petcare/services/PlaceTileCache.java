@@ -0,0 +1,145 @@
+package com.sc2006.petcare.services;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.sc2006.petcare.DTO.PlaceDetailsDTO;
+import com.sc2006.petcare.events.PetcareAmenityUpdatedEvent;
+import com.sc2006.petcare.models.PetcareAmenityModel;
+import com.sc2006.petcare.utils.GeoHash;
+
+/*
+ * In-memory cache of search results keyed by (geohash tile, radius, keyword).
+ * Entries expire after a TTL and the least recently used tile is evicted once the cache is full.
+ */
+@Component
+public class PlaceTileCache {
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    private final LinkedHashMap<String, CachedTile> tiles;
+    // placeId -> keys of the tiles that contain it, used for per-tile invalidation
+    private final Map<String, Set<String>> tilesByPlace = new HashMap<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public PlaceTileCache(
+            @Value("${google.maps.tile-cache.ttl-seconds:600}") long ttlSeconds,
+            @Value("${google.maps.tile-cache.max-entries:2000}") int maxEntries) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.tiles = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public static String tileKey(double latitude, double longitude, int radius, String query) {
+        String cell = GeoHash.encode(latitude, longitude, GeoHash.precisionForRadius(radius));
+        return cell + "|" + radius + "|" + query;
+    }
+
+    public synchronized List<PlaceDetailsDTO> get(String key) {
+        CachedTile tile = tiles.get(key);
+        if (tile == null) {
+            misses++;
+            return null;
+        }
+        if (System.currentTimeMillis() - tile.storedAt > ttlMillis) {
+            removeTile(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return tile.places;
+    }
+
+    public synchronized void put(String key, List<PlaceDetailsDTO> places) {
+        removeTile(key);
+        tiles.put(key, new CachedTile(List.copyOf(places)));
+        for (PlaceDetailsDTO place : places) {
+            tilesByPlace.computeIfAbsent(place.getId(), id -> new HashSet<>()).add(key);
+        }
+        // Evict least recently used tiles once over capacity
+        while (tiles.size() > maxEntries) {
+            removeTile(tiles.keySet().iterator().next());
+            evictions++;
+        }
+    }
+
+    // Drop every tile holding a stale copy of the updated place
+    @EventListener
+    public synchronized void onAmenityUpdated(PetcareAmenityUpdatedEvent event) {
+        PetcareAmenityModel amenity = event.getAmenity();
+        Set<String> keys = tilesByPlace.get(amenity.getAmenityId());
+        if (keys == null) {
+            return;
+        }
+        for (String key : Set.copyOf(keys)) {
+            CachedTile tile = tiles.get(key);
+            if (tile != null && tile.isStale(amenity)) {
+                removeTile(key);
+                invalidations++;
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", tiles.size());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        stats.put("invalidations", invalidations);
+        return stats;
+    }
+
+    private void removeTile(String key) {
+        CachedTile removed = tiles.remove(key);
+        unlinkPlaces(key, removed);
+    }
+
+    private void unlinkPlaces(String key, CachedTile tile) {
+        if (tile == null) {
+            return;
+        }
+        for (PlaceDetailsDTO place : tile.places) {
+            Set<String> keys = tilesByPlace.get(place.getId());
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    tilesByPlace.remove(place.getId());
+                }
+            }
+        }
+    }
+
+    private static class CachedTile {
+        private final List<PlaceDetailsDTO> places;
+        private final long storedAt = System.currentTimeMillis();
+
+        CachedTile(List<PlaceDetailsDTO> places) {
+            this.places = places;
+        }
+
+        boolean isStale(PetcareAmenityModel amenity) {
+            for (PlaceDetailsDTO place : places) {
+                if (place.getId().equals(amenity.getAmenityId())) {
+                    return place.isOpenNow() != amenity.isOpenNow() || place.getRating() != amenity.getRating();
+                }
+            }
+            return false;
+        }
+    }
+}
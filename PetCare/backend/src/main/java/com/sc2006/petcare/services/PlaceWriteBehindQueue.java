@@ -0,0 +1,300 @@
+package com.sc2006.petcare.services;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.sc2006.petcare.DTO.PlaceDetailsDTO;
+import com.sc2006.petcare.models.LocationModel;
+import com.sc2006.petcare.models.PetcareAmenityModel;
+import com.sc2006.petcare.repositories.LocationRepository;
+import com.sc2006.petcare.repositories.PetcareAmenityRepository;
+import com.sc2006.petcare.utils.GeoHash;
+
+/*
+ * Write-behind buffer for places discovered by searches.
+ * Repeated saves of the same amenityId are coalesced while queued, and a serial flush task
+ * on the background pool writes Location and PetcareAmenity upserts to Firestore as batched writes.
+ * Places from a failed batch are queued again with exponential backoff, up to max-attempts tries.
+ */
+@Component
+public class PlaceWriteBehindQueue {
+    @Autowired
+    private PetcareAmenityRepository petcareAmenityRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    @Value("${petcare.write-behind.capacity:1000}")
+    private int capacity;
+
+    // Each place costs two writes, so this is clamped to keep a flush within the 500-write batch limit
+    @Value("${petcare.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${petcare.write-behind.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${petcare.write-behind.max-backoff-ms:60000}")
+    private long maxBackoffMillis;
+
+    @Value("${petcare.write-behind.flush-interval-ms:2000}")
+    private long flushIntervalMillis;
+
+    @Value("${petcare.write-behind.offer-timeout-ms:100}")
+    private long offerTimeoutMillis;
+
+    // Precision 9 cells are about 5 m across, fine enough for any radius query prefix
+    private static final int GEOHASH_PRECISION = 9;
+    private static final int MAX_BATCH_WRITES = 500;
+    // A Location and a PetcareAmenity document per place
+    private static final int WRITES_PER_PLACE = 2;
+
+    private final LinkedHashMap<String, PendingPlace> pending = new LinkedHashMap<>();
+    private ExecutorRegistry.SerialTask flushTask;
+    private volatile boolean stopped;
+
+    private long enqueued;
+    private long coalesced;
+    private long rejected;
+    private long flushes;
+    private long flushedPlaces;
+    private long failedFlushes;
+    private long retriedPlaces;
+    private long droppedPlaces;
+    private long lastFlushMillis;
+    private long maxFlushMillis;
+    private long totalFlushMillis;
+
+    @PostConstruct
+    public void start() {
+        int maxBatchSize = MAX_BATCH_WRITES / WRITES_PER_PLACE;
+        if (batchSize < 1 || batchSize > maxBatchSize) {
+            System.err.println("petcare.write-behind.batch-size " + batchSize + " is out of range, using "
+                    + Math.max(1, Math.min(batchSize, maxBatchSize)));
+            batchSize = Math.max(1, Math.min(batchSize, maxBatchSize));
+        }
+        flushTask = executorRegistry.scheduleWithFixedDelay(ExecutorRegistry.Pool.BACKGROUND, this::flushAll,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean enqueue(PlaceDetailsDTO placeDetailsDTO) {
+        return enqueue(placeDetailsDTO, Set.of());
+    }
+
+    // Queue a place for saving, blocking briefly when the queue is full; returns false if it was shed
+    public boolean enqueue(PlaceDetailsDTO placeDetailsDTO, Set<String> categories) {
+        synchronized (pending) {
+            PendingPlace queued = pending.get(placeDetailsDTO.getId());
+            if (queued != null) {
+                // Only the latest copy of a place needs to be written, keeping every category seen
+                queued.place = placeDetailsDTO;
+                queued.categories.addAll(categories);
+                coalesced++;
+                return true;
+            }
+            long deadline = System.currentTimeMillis() + offerTimeoutMillis;
+            while (pending.size() >= capacity) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    rejected++;
+                    return false;
+                }
+                try {
+                    pending.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejected++;
+                    return false;
+                }
+            }
+            pending.put(placeDetailsDTO.getId(), new PendingPlace(placeDetailsDTO, categories));
+            enqueued++;
+            if (pending.size() >= batchSize && !stopped) {
+                flushTask.trigger();
+            }
+            return true;
+        }
+    }
+
+    private void flushAll() {
+        while (flushBatch() > 0) {
+            // Keep flushing until the queue is drained
+        }
+    }
+
+    private int flushBatch() {
+        List<PendingPlace> batch = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (pending) {
+            Iterator<PendingPlace> iterator = pending.values().iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                PendingPlace pendingPlace = iterator.next();
+                // Retries wait out their backoff, except for the final drain on shutdown
+                if (pendingPlace.retryAt > now && !stopped) {
+                    continue;
+                }
+                batch.add(pendingPlace);
+                iterator.remove();
+            }
+            pending.notifyAll();
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            List<LocationModel> locationModels = new ArrayList<>();
+            List<DocumentReference> locationRefs = new ArrayList<>();
+            List<PetcareAmenityModel> petcareAmenityModels = new ArrayList<>();
+            for (PendingPlace pendingPlace : batch) {
+                LocationModel locationModel = toLocationModel(pendingPlace.place);
+                DocumentReference locationRef = locationRepository.getLocationDocReference(locationModel);
+                locationModels.add(locationModel);
+                locationRefs.add(locationRef);
+                petcareAmenityModels.add(toAmenityModel(pendingPlace, locationRef));
+            }
+            petcareAmenityRepository.saveAllPlaceDetails(locationRefs, locationModels, petcareAmenityModels);
+            recordFlush(batch.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            System.err.println("Error flushing " + batch.size() + " places: " + e.getMessage());
+            e.printStackTrace();
+            requeue(batch);
+        }
+        return batch.size();
+    }
+
+    // Put a failed batch back, merging into any newer copy queued while it was being written
+    private void requeue(List<PendingPlace> batch) {
+        synchronized (pending) {
+            failedFlushes++;
+            for (PendingPlace failed : batch) {
+                String placeId = failed.place.getId();
+                PendingPlace newer = pending.get(placeId);
+                if (newer != null) {
+                    // The newer copy is written on its own schedule, it only needs the categories
+                    newer.categories.addAll(failed.categories);
+                    continue;
+                }
+                if (failed.attempts + 1 >= maxAttempts) {
+                    droppedPlaces++;
+                    System.err.println("Dropped place " + placeId + " after " + maxAttempts + " failed writes");
+                    continue;
+                }
+                failed.attempts++;
+                failed.retryAt = System.currentTimeMillis()
+                        + Math.min(maxBackoffMillis, flushIntervalMillis << Math.min(failed.attempts, 20));
+                pending.put(placeId, failed);
+                retriedPlaces++;
+            }
+        }
+    }
+
+    private void recordFlush(int places, long durationMillis) {
+        synchronized (pending) {
+            flushes++;
+            flushedPlaces += places;
+            lastFlushMillis = durationMillis;
+            maxFlushMillis = Math.max(maxFlushMillis, durationMillis);
+            totalFlushMillis += durationMillis;
+        }
+    }
+
+    private LocationModel toLocationModel(PlaceDetailsDTO placeDetailsDTO) {
+        LocationModel locationModel = new LocationModel();
+        locationModel.setLocationLatitude(placeDetailsDTO.getLatitude());
+        locationModel.setLocationLongitude(placeDetailsDTO.getLongitude());
+        locationModel.setLocationAddress(placeDetailsDTO.getVicinity());
+        return locationModel;
+    }
+
+    private PetcareAmenityModel toAmenityModel(PendingPlace pendingPlace, DocumentReference locationRef) {
+        PlaceDetailsDTO placeDetailsDTO = pendingPlace.place;
+        PetcareAmenityModel petcareAmenityModel = new PetcareAmenityModel();
+        petcareAmenityModel.setAmenityId(placeDetailsDTO.getId());
+        petcareAmenityModel.setAmenityName(placeDetailsDTO.getName());
+        petcareAmenityModel.setOpenNow(placeDetailsDTO.isOpenNow());
+        petcareAmenityModel.setOpeningHours(placeDetailsDTO.getOpeningHours());
+        petcareAmenityModel.setOpeningIntervals(placeDetailsDTO.getOpeningIntervals());
+        petcareAmenityModel.setUtcOffsetMinutes(placeDetailsDTO.getUtcOffsetMinutes());
+        petcareAmenityModel.setContactNumber(placeDetailsDTO.getPhoneNumber());
+        petcareAmenityModel.setWebsiteURL(placeDetailsDTO.getWebsite());
+        petcareAmenityModel.setRating(placeDetailsDTO.getRating());
+        petcareAmenityModel.setLocation(locationRef);
+        petcareAmenityModel.setPhoto(placeDetailsDTO.getPhotoUrl());
+        petcareAmenityModel.setPhotoUrls(placeDetailsDTO.getPhotoUrls());
+        petcareAmenityModel.setTimestamp(new Date());
+        petcareAmenityModel.setLatitude(placeDetailsDTO.getLatitude());
+        petcareAmenityModel.setLongitude(placeDetailsDTO.getLongitude());
+        petcareAmenityModel.setAddress(placeDetailsDTO.getVicinity());
+        petcareAmenityModel.setGeohash(
+                GeoHash.encode(placeDetailsDTO.getLatitude(), placeDetailsDTO.getLongitude(), GEOHASH_PRECISION));
+        Map<String, Boolean> categories = new HashMap<>();
+        for (String category : pendingPlace.categories) {
+            categories.put(category, true);
+        }
+        petcareAmenityModel.setCategories(categories);
+        return petcareAmenityModel;
+    }
+
+    public Map<String, Object> stats() {
+        synchronized (pending) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("queueDepth", pending.size());
+            stats.put("capacity", capacity);
+            stats.put("enqueued", enqueued);
+            stats.put("coalesced", coalesced);
+            stats.put("rejected", rejected);
+            stats.put("flushes", flushes);
+            stats.put("flushedPlaces", flushedPlaces);
+            stats.put("failedFlushes", failedFlushes);
+            stats.put("retriedPlaces", retriedPlaces);
+            stats.put("droppedPlaces", droppedPlaces);
+            stats.put("batchSize", batchSize);
+            stats.put("lastFlushMillis", lastFlushMillis);
+            stats.put("maxFlushMillis", maxFlushMillis);
+            stats.put("avgFlushMillis", flushes == 0 ? 0 : totalFlushMillis / flushes);
+            return stats;
+        }
+    }
+
+    // Drain whatever is still queued before the application stops
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stopped = true;
+        flushTask.cancel(10, TimeUnit.SECONDS);
+        flushAll();
+    }
+
+    private static class PendingPlace {
+        private PlaceDetailsDTO place;
+        private final Set<String> categories;
+        // Failed writes so far, and when the next one may be tried
+        private int attempts;
+        private long retryAt;
+
+        PendingPlace(PlaceDetailsDTO place, Set<String> categories) {
+            this.place = place;
+            this.categories = new HashSet<>(categories);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.sc2006.petcare.services;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ * Runs outbound Google Maps calls in parallel on the shared IO pool.
+ * The IO pool size is the global in-flight cap, each Batch caps how many calls
+ * a single search may have running at once, and every call gets its own timeout.
+ * A timed out call is interrupted, and its slot is only handed on once its IO thread is free.
+ */
+@Component
+public class PlacesFanOutExecutor {
+    private final ExecutorRegistry executorRegistry;
+    private final Executor executor;
+    private final int perRequestLimit;
+    private final long callTimeoutMillis;
+
+    public PlacesFanOutExecutor(
+            ExecutorRegistry executorRegistry,
+            @Value("${google.maps.fanout.per-request:8}") int perRequestLimit,
+            @Value("${google.maps.fanout.call-timeout-ms:5000}") long callTimeoutMillis) {
+        this.executorRegistry = executorRegistry;
+        this.executor = executorRegistry.executor(ExecutorRegistry.Pool.IO);
+        this.perRequestLimit = perRequestLimit;
+        this.callTimeoutMillis = callTimeoutMillis;
+    }
+
+    // One batch per incoming search request
+    public Batch newBatch() {
+        return new Batch(perRequestLimit);
+    }
+
+    public class Batch {
+        private final int limit;
+        private final Deque<Runnable> pending = new ArrayDeque<>();
+        private int running;
+
+        private Batch(int limit) {
+            this.limit = limit;
+        }
+
+        public <T> CompletableFuture<T> submit(Callable<T> call) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            Runnable launch = () -> launch(call, result);
+            synchronized (this) {
+                if (running >= limit) {
+                    // Over the per-request cap, start it once an earlier call finishes
+                    pending.add(launch);
+                    return result;
+                }
+                running++;
+            }
+            launch.run();
+            return result;
+        }
+
+        private <T> void launch(Callable<T> call, CompletableFuture<T> result) {
+            FutureTask<T> task = new FutureTask<>(call);
+            // Only the caller's result fails at the deadline, the worker is interrupted and frees its slot on exit
+            ScheduledFuture<?> timeout = executorRegistry.schedule(() -> {
+                if (result.completeExceptionally(new TimeoutException(
+                        "Places call not finished within " + callTimeoutMillis + " ms"))) {
+                    task.cancel(true);
+                }
+            }, callTimeoutMillis, TimeUnit.MILLISECONDS);
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        timeout.cancel(false);
+                        complete(task, result);
+                        release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Global in-flight cap and queue are both full
+                timeout.cancel(false);
+                result.completeExceptionally(e);
+                release();
+            }
+        }
+
+        private <T> void complete(FutureTask<T> task, CompletableFuture<T> result) {
+            if (task.isCancelled()) {
+                return; // Already failed by the timeout
+            }
+            try {
+                result.complete(task.get());
+            } catch (ExecutionException e) {
+                result.completeExceptionally(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void release() {
+            Runnable next;
+            synchronized (this) {
+                next = pending.poll();
+                if (next == null) {
+                    running--;
+                    return;
+                }
+            }
+            next.run();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.sc2006.petcare.services;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ * Client-side rate limiting and daily quota budgeting for Google Places.
+ * Each endpoint has its own token bucket for QPS; all endpoints draw from one daily budget.
+ * As the budget runs low, calls are shed in order: photos first, then details, then searches
+ * (cache only). An OVER_QUERY_LIMIT from Google forces cache-only mode for a cooldown period.
+ */
+@Component
+public class PlacesQuotaGovernor {
+    public enum Endpoint {
+        NEARBY, TEXT_SEARCH, DETAILS, PHOTO
+    }
+
+    public enum Level {
+        FULL, NO_PHOTOS, NO_DETAILS, CACHE_ONLY
+    }
+
+    // Thrown when Google reports OVER_QUERY_LIMIT or a call is shed locally
+    public static class QuotaExceededException extends RuntimeException {
+        public QuotaExceededException(String message) {
+            super(message);
+        }
+    }
+
+    private final Map<Endpoint, TokenBucket> buckets = new EnumMap<>(Endpoint.class);
+    private final long dailyBudget;
+    private final double photoCutoff;
+    private final double detailsCutoff;
+    private final double cacheOnlyCutoff;
+    private final long maxWaitMillis;
+    private final long overLimitCooldownMillis;
+    private final ZoneId quotaZone;
+
+    private LocalDate budgetDay;
+    private long usedToday;
+    private long overLimitUntil;
+    private long overQueryLimits;
+
+    public PlacesQuotaGovernor(
+            @Value("${google.maps.quota.daily-budget:20000}") long dailyBudget,
+            @Value("${google.maps.quota.nearby.qps:10}") double nearbyQps,
+            @Value("${google.maps.quota.text-search.qps:10}") double textSearchQps,
+            @Value("${google.maps.quota.details.qps:20}") double detailsQps,
+            @Value("${google.maps.quota.photo.qps:20}") double photoQps,
+            @Value("${google.maps.quota.photo-cutoff:0.30}") double photoCutoff,
+            @Value("${google.maps.quota.details-cutoff:0.15}") double detailsCutoff,
+            @Value("${google.maps.quota.cache-only-cutoff:0.05}") double cacheOnlyCutoff,
+            @Value("${google.maps.quota.max-wait-ms:500}") long maxWaitMillis,
+            @Value("${google.maps.quota.over-limit-cooldown-ms:60000}") long overLimitCooldownMillis,
+            // Places quotas reset at midnight Pacific Time
+            @Value("${google.maps.quota.zone:America/Los_Angeles}") String quotaZone) {
+        this.dailyBudget = dailyBudget;
+        this.photoCutoff = photoCutoff;
+        this.detailsCutoff = detailsCutoff;
+        this.cacheOnlyCutoff = cacheOnlyCutoff;
+        this.maxWaitMillis = maxWaitMillis;
+        this.overLimitCooldownMillis = overLimitCooldownMillis;
+        this.quotaZone = ZoneId.of(quotaZone);
+        this.budgetDay = LocalDate.now(this.quotaZone);
+        buckets.put(Endpoint.NEARBY, new TokenBucket(nearbyQps));
+        buckets.put(Endpoint.TEXT_SEARCH, new TokenBucket(textSearchQps));
+        buckets.put(Endpoint.DETAILS, new TokenBucket(detailsQps));
+        buckets.put(Endpoint.PHOTO, new TokenBucket(photoQps));
+    }
+
+    public synchronized Level level() {
+        rollOverIfNewDay();
+        if (System.currentTimeMillis() < overLimitUntil) {
+            return Level.CACHE_ONLY;
+        }
+        double remaining = dailyBudget <= 0 ? 0 : (double) (dailyBudget - usedToday) / dailyBudget;
+        if (remaining <= cacheOnlyCutoff) {
+            return Level.CACHE_ONLY;
+        }
+        if (remaining <= detailsCutoff) {
+            return Level.NO_DETAILS;
+        }
+        if (remaining <= photoCutoff) {
+            return Level.NO_PHOTOS;
+        }
+        return Level.FULL;
+    }
+
+    // Whether the current degradation level still allows calls to this endpoint
+    public boolean allows(Endpoint endpoint) {
+        Level level = level();
+        switch (endpoint) {
+            case PHOTO:
+                return level == Level.FULL;
+            case DETAILS:
+                return level.compareTo(Level.NO_DETAILS) < 0;
+            default:
+                return level != Level.CACHE_ONLY;
+        }
+    }
+
+    /*
+     * Take one call's worth of budget and rate for the endpoint, waiting up to max-wait-ms for a token.
+     * Returns false if the call should be shed instead.
+     */
+    public boolean tryAcquire(Endpoint endpoint) {
+        TokenBucket bucket = buckets.get(endpoint);
+        if (!allows(endpoint)) {
+            bucket.recordShed();
+            return false;
+        }
+        if (!bucket.take(maxWaitMillis)) {
+            return false;
+        }
+        synchronized (this) {
+            rollOverIfNewDay();
+            usedToday++;
+        }
+        return true;
+    }
+
+    public void reportOverQueryLimit(Endpoint endpoint) {
+        buckets.get(endpoint).recordOverQueryLimit();
+        synchronized (this) {
+            overQueryLimits++;
+            overLimitUntil = System.currentTimeMillis() + overLimitCooldownMillis;
+        }
+        System.err.println("Places " + endpoint + " returned OVER_QUERY_LIMIT, serving from cache for "
+                + overLimitCooldownMillis + " ms");
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("level", level().name());
+        synchronized (this) {
+            stats.put("dailyBudget", dailyBudget);
+            stats.put("usedToday", usedToday);
+            stats.put("remainingToday", Math.max(0, dailyBudget - usedToday));
+            stats.put("budgetDay", budgetDay.toString());
+            stats.put("overQueryLimits", overQueryLimits);
+        }
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        buckets.forEach((endpoint, bucket) -> endpoints.put(endpoint.name(), bucket.stats()));
+        stats.put("endpoints", endpoints);
+        return stats;
+    }
+
+    private void rollOverIfNewDay() {
+        LocalDate today = LocalDate.now(quotaZone);
+        if (!today.equals(budgetDay)) {
+            budgetDay = today;
+            usedToday = 0;
+            buckets.values().forEach(TokenBucket::resetDailyCount);
+        }
+    }
+
+    private static class TokenBucket {
+        private final double ratePerSecond;
+        private final double capacity;
+        private double tokens;
+        private long lastRefillNanos = System.nanoTime();
+
+        private long granted;
+        private long grantedToday;
+        private long throttled;
+        private long shed;
+        private long overQueryLimit;
+
+        TokenBucket(double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+            // Allow up to one second's worth of burst
+            this.capacity = Math.max(1, ratePerSecond);
+            this.tokens = capacity;
+        }
+
+        synchronized boolean take(long maxWaitMillis) {
+            long deadline = System.currentTimeMillis() + maxWaitMillis;
+            boolean waited = false;
+            while (true) {
+                refill();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    granted++;
+                    grantedToday++;
+                    if (waited) {
+                        throttled++;
+                    }
+                    return true;
+                }
+                long waitMillis = (long) Math.ceil((1 - tokens) * 1000 / ratePerSecond);
+                long remaining = deadline - System.currentTimeMillis();
+                if (waitMillis > remaining) {
+                    shed++;
+                    return false;
+                }
+                waited = true;
+                try {
+                    wait(Math.max(1, waitMillis));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    shed++;
+                    return false;
+                }
+            }
+        }
+
+        synchronized void recordShed() {
+            shed++;
+        }
+
+        synchronized void recordOverQueryLimit() {
+            overQueryLimit++;
+        }
+
+        synchronized void resetDailyCount() {
+            grantedToday = 0;
+        }
+
+        synchronized Map<String, Object> stats() {
+            refill();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("qps", ratePerSecond);
+            stats.put("tokens", Math.floor(tokens * 100) / 100);
+            stats.put("granted", granted);
+            stats.put("grantedToday", grantedToday);
+            stats.put("throttled", throttled);
+            stats.put("shed", shed);
+            stats.put("overQueryLimit", overQueryLimit);
+            return stats;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) / 1e9 * ratePerSecond);
+            lastRefillNanos = now;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.sc2006.petcare.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sc2006.petcare.DTO.DayTimeDTO;
+import com.sc2006.petcare.DTO.PlaceDetailsDTO;
+import com.sc2006.petcare.DTO.PlaceOpeningHoursDTO;
+import com.sc2006.petcare.DTO.PlaceSearchPageDTO;
+import com.sc2006.petcare.DTO.PlaceSearchResultDTO;
+import com.sc2006.petcare.utils.WeeklySchedule;
+
+/*
+ * Pull-parser readers for Places search and details responses.
+ * Only the fields PlaceDetailsDTO needs are read straight off the connection stream, everything
+ * else is skipped without building a tree, and search pages stop reading once the result cap is hit.
+ */
+@Component
+public class PlacesResponseReader {
+    public static final int MAX_RESULTS = 10;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    // Read up to maxResults places from a nearbysearch or textsearch page
+    public List<PlaceSearchResultDTO> readSearchResults(InputStream in, String addressField, int maxResults)
+            throws IOException {
+        return readSearchPage(in, addressField, maxResults).getResults();
+    }
+
+    /*
+     * Read a whole search page including its next_page_token. Google writes the token ahead of the
+     * results, so stopping at maxResults still returns it; status is only known if the page is read to the end.
+     */
+    public PlaceSearchPageDTO readSearchPage(InputStream in, String addressField, int maxResults) throws IOException {
+        PlaceSearchPageDTO page = new PlaceSearchPageDTO();
+        List<PlaceSearchResultDTO> results = new ArrayList<>();
+        page.setResults(results);
+        String status = null;
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("results".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        results.add(readSearchResult(parser, addressField));
+                        if (results.size() >= maxResults) {
+                            // The rest of the page is never used, don't read it off the wire. Google writes
+                            // status last, so unless it came first a page with results is taken as OK
+                            if ("OVER_QUERY_LIMIT".equals(status)) {
+                                throw new PlacesQuotaGovernor.QuotaExceededException(
+                                        "Places search returned OVER_QUERY_LIMIT");
+                            }
+                            page.setStatus(status != null ? status : "OK");
+                            return page;
+                        }
+                    }
+                } else if ("next_page_token".equals(field)) {
+                    page.setNextPageToken(parser.getText());
+                } else if ("status".equals(field)) {
+                    status = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if ("OVER_QUERY_LIMIT".equals(status)) {
+            throw new PlacesQuotaGovernor.QuotaExceededException("Places search returned OVER_QUERY_LIMIT");
+        }
+        if (status != null && !"OK".equals(status) && !"ZERO_RESULTS".equals(status)) {
+            System.err.println("Places search returned status " + status);
+        }
+        page.setStatus(status);
+        return page;
+    }
+
+    // Read a details response into a PlaceDetailsDTO for the given search result
+    public PlaceDetailsDTO readDetails(InputStream in, PlaceSearchResultDTO place) throws IOException {
+        String phoneNumber = "N/A";
+        String website = "N/A";
+        boolean openNow = false;
+        List<PlaceOpeningHoursDTO> openingPeriods = null;
+        Integer utcOffsetMinutes = null;
+        boolean hasResult = false;
+        String status = null;
+
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("status".equals(field)) {
+                    status = parser.getText();
+                    continue;
+                }
+                if (!"result".equals(field) || value != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                hasResult = true;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String resultField = parser.currentName();
+                    JsonToken resultValue = parser.nextToken();
+                    switch (resultField) {
+                        case "formatted_phone_number":
+                            phoneNumber = parser.getText();
+                            break;
+                        case "website":
+                            website = parser.getText();
+                            break;
+                        case "utc_offset":
+                        case "utc_offset_minutes":
+                            utcOffsetMinutes = parser.getIntValue();
+                            break;
+                        case "opening_hours":
+                            if (resultValue != JsonToken.START_OBJECT) {
+                                parser.skipChildren();
+                                break;
+                            }
+                            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                String hoursField = parser.currentName();
+                                JsonToken hoursValue = parser.nextToken();
+                                if ("open_now".equals(hoursField)) {
+                                    openNow = hoursValue == JsonToken.VALUE_TRUE;
+                                } else if ("periods".equals(hoursField) && hoursValue == JsonToken.START_ARRAY) {
+                                    openingPeriods = readPeriods(parser);
+                                } else {
+                                    parser.skipChildren();
+                                }
+                            }
+                            break;
+                        default:
+                            parser.skipChildren();
+                    }
+                }
+            }
+        }
+        if ("OVER_QUERY_LIMIT".equals(status)) {
+            throw new PlacesQuotaGovernor.QuotaExceededException("Place details returned OVER_QUERY_LIMIT");
+        }
+        if (!hasResult) {
+            throw new IOException("Place details for " + place.getPlaceId() + " returned status " + status);
+        }
+
+        PlaceDetailsDTO placeDetailsDTO = toPlaceDetails(place, openNow, phoneNumber, website, openingPeriods);
+        // Only compile when periods were returned, otherwise fall back to the openNow snapshot
+        if (openingPeriods != null) {
+            placeDetailsDTO.setOpeningIntervals(WeeklySchedule.compileIntervals(openingPeriods));
+        }
+        placeDetailsDTO.setUtcOffsetMinutes(utcOffsetMinutes);
+        return placeDetailsDTO;
+    }
+
+    // Details built from the search result alone, used when the details call is skipped
+    public PlaceDetailsDTO basicDetails(PlaceSearchResultDTO place) {
+        return toPlaceDetails(place, place.isOpenNow(), "N/A", "N/A", null);
+    }
+
+    private PlaceDetailsDTO toPlaceDetails(PlaceSearchResultDTO place, boolean openNow, String phoneNumber,
+            String website, List<PlaceOpeningHoursDTO> openingPeriods) {
+        List<PlaceOpeningHoursDTO> openingHours = openingPeriods;
+        if (openingHours == null) {
+            openingHours = new ArrayList<>();
+            openingHours.add(new PlaceOpeningHoursDTO(new DayTimeDTO(-1, "N/A"), null));
+        }
+        // Photos are served separately by PlacePhotoService, only the URL goes in the response
+        String photoUrl = PlacePhotoService.photoUrl(place.getPhotoReference());
+        return new PlaceDetailsDTO(place.getPlaceId(), place.getName(), place.getRating(), photoUrl, openNow,
+                place.getVicinity(), place.getLatitude(), place.getLongitude(), phoneNumber, website, openingHours);
+    }
+
+    private PlaceSearchResultDTO readSearchResult(JsonParser parser, String addressField) throws IOException {
+        PlaceSearchResultDTO result = new PlaceSearchResultDTO();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("place_id".equals(field)) {
+                result.setPlaceId(parser.getText());
+            } else if ("name".equals(field)) {
+                result.setName(parser.getText());
+            } else if ("rating".equals(field) && value.isNumeric()) {
+                result.setRating(parser.getDoubleValue());
+            } else if (addressField.equals(field)) {
+                result.setVicinity(parser.getText());
+            } else if ("geometry".equals(field) && value == JsonToken.START_OBJECT) {
+                readGeometry(parser, result);
+            } else if ("photos".equals(field) && value == JsonToken.START_ARRAY) {
+                readFirstPhoto(parser, result);
+            } else if ("opening_hours".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String hoursField = parser.currentName();
+                    JsonToken hoursValue = parser.nextToken();
+                    if ("open_now".equals(hoursField)) {
+                        result.setOpenNow(hoursValue == JsonToken.VALUE_TRUE);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (result.getPlaceId() == null || result.getName() == null) {
+            throw new IOException("Places search result is missing place_id or name");
+        }
+        if (result.getVicinity() == null) {
+            result.setVicinity("");
+        }
+        return result;
+    }
+
+    private void readGeometry(JsonParser parser, PlaceSearchResultDTO result) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (!"location".equals(field) || value != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String coordinate = parser.currentName();
+                parser.nextToken();
+                if ("lat".equals(coordinate)) {
+                    result.setLatitude(parser.getDoubleValue());
+                } else if ("lng".equals(coordinate)) {
+                    result.setLongitude(parser.getDoubleValue());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    // Only the first photo is shown, the remaining entries are skipped
+    private void readFirstPhoto(JsonParser parser, PlaceSearchResultDTO result) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("photo_reference".equals(field) && result.getPhotoReference() == null) {
+                    result.setPhotoReference(parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private List<PlaceOpeningHoursDTO> readPeriods(JsonParser parser) throws IOException {
+        List<PlaceOpeningHoursDTO> periods = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            DayTimeDTO open = null;
+            DayTimeDTO close = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("open".equals(field) && value == JsonToken.START_OBJECT) {
+                    open = readDayTime(parser);
+                } else if ("close".equals(field) && value == JsonToken.START_OBJECT) {
+                    close = readDayTime(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            periods.add(new PlaceOpeningHoursDTO(open, close));
+        }
+        return periods;
+    }
+
+    private DayTimeDTO readDayTime(JsonParser parser) throws IOException {
+        int day = -1;
+        String time = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("day".equals(field)) {
+                day = parser.getValueAsInt(-1);
+            } else if ("time".equals(field)) {
+                time = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new DayTimeDTO(day, time);
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected Places response, expected " + expected + " but found " + actual);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.sc2006.petcare.services;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.GeoPoint;
+import com.sc2006.petcare.DTO.ProximityAlertDTO;
+import com.sc2006.petcare.events.MissingPetReportedEvent;
+import com.sc2006.petcare.models.MissingPetModel;
+import com.sc2006.petcare.models.PetModel;
+import com.sc2006.petcare.models.UserModel;
+import com.sc2006.petcare.repositories.UserRepository;
+import com.sc2006.petcare.utils.GeoHash;
+
+/*
+ * Tells users who live near a newly reported missing pet.
+ * The report is handed to the background pool as soon as it is stored. Recipients are found with geohash range
+ * queries on their geocoded homes, deduplicated per report and rate limited per user, then sent through every
+ * enabled NotificationChannel in batches. Batches are scheduled at a fixed rate per channel rather than sent in a
+ * loop, so a fan-out to tens of thousands of users never holds a thread while it waits for its turn. A batch the
+ * background pool can't take is moved to the channel's next free slot rather than sent on the timer thread.
+ */
+@Service
+public class ProximityAlertService {
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    @Autowired
+    private List<NotificationChannel> channels;
+
+    @Autowired
+    private AddressGeocoder addressGeocoder;
+
+    @Value("${petcare.alerts.enabled:true}")
+    private boolean enabled;
+
+    @Value("${petcare.alerts.radius-km:3}")
+    private double radiusKm;
+
+    @Value("${petcare.alerts.max-per-user-per-day:3}")
+    private int maxPerUserPerDay;
+
+    // Minimum gap between two batches on the same channel
+    @Value("${petcare.alerts.batch-interval-ms:1000}")
+    private long batchIntervalMillis;
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    // A batch still rejected after this many tries is dropped
+    private static final int MAX_BATCH_ATTEMPTS = 10;
+
+    // "<missingId>|<userId>" -> when the user was alerted about that report
+    private final Map<String, Long> alerted = new ConcurrentHashMap<>();
+    // userId -> times of the alerts sent to the user in the last day
+    private final Map<String, Deque<Long>> recentAlerts = new ConcurrentHashMap<>();
+    // channel name -> earliest time its next batch may go out
+    private final Map<String, AtomicLong> nextBatchAt = new ConcurrentHashMap<>();
+
+    private final AtomicLong reports = new AtomicLong();
+    private final AtomicLong droppedReports = new AtomicLong();
+    private final AtomicLong candidates = new AtomicLong();
+    private final AtomicLong recipients = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong rescheduledBatches = new AtomicLong();
+    private final AtomicLong droppedBatches = new AtomicLong();
+    private final Map<String, AtomicLong> sentByChannel = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onMissingPetReported(MissingPetReportedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        reports.incrementAndGet();
+        MissingPetModel missing = event.getMissingPet();
+        try {
+            executorRegistry.executor(ExecutorRegistry.Pool.BACKGROUND).execute(() -> fanOut(missing));
+        } catch (RejectedExecutionException e) {
+            droppedReports.incrementAndGet();
+            System.err.println("Skipped proximity alerts for missing pet " + missing.getId() + ": background pool is full");
+        }
+    }
+
+    private void fanOut(MissingPetModel missing) {
+        GeoPoint location = missing.getLastSeenLocation();
+        if (location == null) {
+            return;
+        }
+        int radiusMetres = (int) Math.round(radiusKm * 1000);
+        List<UserModel> nearbyUsers;
+        try {
+            nearbyUsers = userRepository.findByHomeCells(
+                    GeoHash.coveringCells(location.getLatitude(), location.getLongitude(), radiusMetres));
+        } catch (Exception e) {
+            System.err.println("Error finding users near missing pet " + missing.getId() + ": " + e.getMessage());
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        alerted.values().removeIf(sentAt -> now - sentAt > DAY_MILLIS);
+        recentAlerts.values().removeIf(times -> {
+            synchronized (times) {
+                return times.isEmpty() || now - times.peekLast() > DAY_MILLIS;
+            }
+        });
+        String ownerId = missing.getOwner() != null ? missing.getOwner().getId() : null;
+        List<UserModel> selected = new ArrayList<>();
+        for (UserModel user : nearbyUsers) {
+            GeoPoint home = user.getHomeLocation();
+            if (user.getId() == null || user.getId().equals(ownerId) || home == null
+                    || GeoHash.distanceMetres(location.getLatitude(), location.getLongitude(), home.getLatitude(),
+                            home.getLongitude()) > radiusMetres) {
+                continue;
+            }
+            candidates.incrementAndGet();
+            if (alerted.putIfAbsent(missing.getId() + "|" + user.getId(), now) != null) {
+                deduplicated.incrementAndGet();
+                continue;
+            }
+            if (!takeAlertSlot(user.getId(), now)) {
+                rateLimited.incrementAndGet();
+                continue;
+            }
+            selected.add(user);
+        }
+        recipients.addAndGet(selected.size());
+        if (selected.isEmpty()) {
+            return;
+        }
+
+        ProximityAlertDTO alert = toAlert(missing);
+        for (NotificationChannel channel : channels) {
+            if (channel.isEnabled()) {
+                schedule(channel, alert, selected);
+            }
+        }
+    }
+
+    // Whether the user may get another alert today, counting this one if so
+    private boolean takeAlertSlot(String userId, long now) {
+        Deque<Long> times = recentAlerts.computeIfAbsent(userId, id -> new ArrayDeque<>());
+        synchronized (times) {
+            while (!times.isEmpty() && now - times.peekFirst() > DAY_MILLIS) {
+                times.pollFirst();
+            }
+            if (times.size() >= maxPerUserPerDay) {
+                return false;
+            }
+            times.addLast(now);
+            return true;
+        }
+    }
+
+    private void schedule(NotificationChannel channel, ProximityAlertDTO alert, List<UserModel> selected) {
+        for (int start = 0; start < selected.size(); start += channel.maxBatchSize()) {
+            List<UserModel> batch = selected.subList(start, Math.min(start + channel.maxBatchSize(), selected.size()));
+            scheduleBatch(channel, alert, batch, 1);
+        }
+    }
+
+    // Take the channel's next slot and hand the batch to the background pool when it comes round
+    private void scheduleBatch(NotificationChannel channel, ProximityAlertDTO alert, List<UserModel> batch,
+            int attempt) {
+        AtomicLong next = nextBatchAt.computeIfAbsent(channel.name(), name -> new AtomicLong());
+        long now = System.currentTimeMillis();
+        long sendAt = next.getAndUpdate(slot -> Math.max(slot, now) + batchIntervalMillis);
+        executorRegistry.schedule(() -> {
+            try {
+                executorRegistry.executor(ExecutorRegistry.Pool.BACKGROUND).execute(() -> send(channel, alert, batch));
+            } catch (RejectedExecutionException e) {
+                if (attempt >= MAX_BATCH_ATTEMPTS) {
+                    droppedBatches.incrementAndGet();
+                    System.err.println("Dropped " + channel.name() + " alerts for missing pet " + alert.getMissingId()
+                            + ": background pool stayed full");
+                    return;
+                }
+                rescheduledBatches.incrementAndGet();
+                scheduleBatch(channel, alert, batch, attempt + 1);
+            }
+        }, Math.max(0, sendAt - now), TimeUnit.MILLISECONDS);
+    }
+
+    private void send(NotificationChannel channel, ProximityAlertDTO alert, List<UserModel> batch) {
+        batches.incrementAndGet();
+        try {
+            int sent = channel.send(alert, batch);
+            sentByChannel.computeIfAbsent(channel.name(), name -> new AtomicLong()).addAndGet(sent);
+        } catch (Exception e) {
+            failedBatches.incrementAndGet();
+            System.err.println("Error sending " + channel.name() + " alerts for missing pet " + alert.getMissingId()
+                    + ": " + e.getMessage());
+        }
+    }
+
+    private ProximityAlertDTO toAlert(MissingPetModel missing) {
+        ProximityAlertDTO alert = new ProximityAlertDTO();
+        alert.setMissingId(missing.getId());
+        alert.setLastSeenDescription(missing.getLastSeenDescription());
+        alert.setLatitude(missing.getLastSeenLocation().getLatitude());
+        alert.setLongitude(missing.getLastSeenLocation().getLongitude());
+        alert.setLastSeenDateTime(missing.getLastSeenDateTime() != null ? missing.getLastSeenDateTime().toDate() : null);
+        alert.setPetName("A pet");
+        try {
+            DocumentSnapshot document = missing.getMissingPet().get().get();
+            PetModel pet = document.exists() ? document.toObject(PetModel.class) : null;
+            if (pet != null && pet.getPetName() != null) {
+                alert.setPetName(pet.getPetName());
+            }
+        } catch (Exception e) {
+            System.err.println("Error fetching pet for missing pet " + missing.getId() + ": " + e.getMessage());
+        }
+        return alert;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("reports", reports.get());
+        stats.put("droppedReports", droppedReports.get());
+        stats.put("candidates", candidates.get());
+        stats.put("recipients", recipients.get());
+        stats.put("deduplicated", deduplicated.get());
+        stats.put("rateLimited", rateLimited.get());
+        stats.put("batches", batches.get());
+        stats.put("failedBatches", failedBatches.get());
+        stats.put("rescheduledBatches", rescheduledBatches.get());
+        stats.put("droppedBatches", droppedBatches.get());
+        Map<String, Object> sent = new LinkedHashMap<>();
+        for (NotificationChannel channel : channels) {
+            sent.put(channel.name(), channel.isEnabled()
+                    ? sentByChannel.getOrDefault(channel.name(), new AtomicLong()).get() : "disabled");
+        }
+        stats.put("sent", sent);
+        stats.put("trackedUsers", recentAlerts.size());
+        stats.put("geocoder", addressGeocoder.stats());
+        return stats;
+    }
+}
@@ -0,0 +1,61 @@
+package com.sc2006.petcare.services;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.Notification;
+import com.sc2006.petcare.DTO.ProximityAlertDTO;
+import com.sc2006.petcare.models.UserModel;
+
+/* Sends an alert as one Firebase Cloud Messaging multicast per batch to the users' registered devices */
+@Component
+public class PushNotificationChannel implements NotificationChannel {
+    // FCM accepts at most 500 tokens per multicast
+    private static final int MAX_TOKENS = 500;
+
+    @Value("${petcare.alerts.push.enabled:false}")
+    private boolean enabled;
+
+    @Override
+    public String name() {
+        return "push";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return MAX_TOKENS;
+    }
+
+    @Override
+    public int send(ProximityAlertDTO alert, List<UserModel> recipients) throws Exception {
+        List<String> tokens = recipients.stream()
+                .map(UserModel::getPushToken)
+                .filter(token -> token != null && !token.isBlank())
+                .distinct()
+                .collect(Collectors.toList());
+        if (tokens.isEmpty()) {
+            return 0;
+        }
+        MulticastMessage message = MulticastMessage.builder()
+                .addAllTokens(tokens)
+                .setNotification(Notification.builder()
+                        .setTitle("Missing pet near you")
+                        .setBody(alert.getPetName() + " has been reported missing near your home.")
+                        .build())
+                .putData("missingId", alert.getMissingId())
+                .build();
+        BatchResponse response = FirebaseMessaging.getInstance().sendEachForMulticast(message);
+        return response.getSuccessCount();
+    }
+}
@@ -0,0 +1,85 @@
+package com.sc2006.petcare.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.sc2006.petcare.DTO.PlaceDetailsDTO;
+import com.sc2006.petcare.utils.GeoHash;
+
+/*
+ * Single-flight layer for map searches.
+ * Concurrent requests that normalize to the same key (geohash cell, radius bucket, keyword set)
+ * share the first caller's upstream computation instead of each going to Google.
+ */
+@Component
+public class SearchCoalescer {
+    private final int radiusBucketMetres;
+    private final Map<String, CompletableFuture<List<PlaceDetailsDTO>>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public SearchCoalescer(@Value("${google.maps.coalescer.radius-bucket-m:250}") int radiusBucketMetres) {
+        this.radiusBucketMetres = radiusBucketMetres;
+    }
+
+    public String key(String kind, double latitude, double longitude, int radius, List<String> terms) {
+        int radiusBucket = Math.max(1, Math.round((float) radius / radiusBucketMetres)) * radiusBucketMetres;
+        String cell = GeoHash.encode(latitude, longitude, GeoHash.precisionForRadius(radiusBucket));
+        // Keyword order and case don't change the result set
+        TreeSet<String> normalizedTerms = new TreeSet<>();
+        for (String term : terms) {
+            normalizedTerms.add(term.trim().toLowerCase());
+        }
+        return kind + "|" + cell + "|" + radiusBucket + "|" + String.join(",", normalizedTerms);
+    }
+
+    // Run the search, or wait for an identical one that is already running
+    public List<PlaceDetailsDTO> execute(String key, Callable<List<PlaceDetailsDTO>> search) throws Exception {
+        requests.incrementAndGet();
+        CompletableFuture<List<PlaceDetailsDTO>> result = new CompletableFuture<>();
+        CompletableFuture<List<PlaceDetailsDTO>> existing = inFlight.putIfAbsent(key, result);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return new ArrayList<>(join(existing));
+        }
+        leaders.incrementAndGet();
+        try {
+            result.complete(search.call());
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, result);
+        }
+        return new ArrayList<>(join(result));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("leaders", leaders.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+
+    private static List<PlaceDetailsDTO> join(CompletableFuture<List<PlaceDetailsDTO>> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+}
@@ -1,24 +1,29 @@
 package com.sc2006.petcare.services;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import com.google.api.core.ApiFuture;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.GeoPoint;
 import com.sc2006.petcare.DTO.SightingDTO;
 import com.sc2006.petcare.DTO.SightingInputDTO;
+import com.sc2006.petcare.events.MissingPetFoundEvent;
 import com.sc2006.petcare.models.SightingModel;
 import com.sc2006.petcare.models.UserModel;
+import com.sc2006.petcare.repositories.DocumentLoader;
 import com.sc2006.petcare.repositories.MissingPetRepository;
 import com.sc2006.petcare.repositories.SightingRepository;
 import com.sc2006.petcare.repositories.UserRepository;
+import com.sc2006.petcare.utils.GeoHash;
 
 @Service
 public class SightingService {
@@ -34,19 +39,110 @@ public class SightingService {
     @Autowired
     private FirebaseService firebaseService;
 
+    @Value("${petcare.missing.page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${petcare.missing.max-page-size:200}")
+    private int maxPageSize;
+
+    @Value("${petcare.missing.max-radius-km:50}")
+    private double maxRadiusKm;
+
     public SightingService(SightingRepository sightingRepository) {
         this.sightingRepository = sightingRepository;
     }
 
     public List<SightingDTO> getAllSightings() {
-        List<SightingDTO> sightingDetailsDTOs = new ArrayList<>();
-        List<SightingModel> sightingList = new ArrayList<>();
-        UserModel reporterContact;
+        List<SightingModel> sightingList;
         try {
             sightingList = sightingRepository.getAllSightings();
-            if (sightingList.isEmpty()) {
-                System.out.println("No sightings found in Firestore.");
+        } catch (Exception e) {
+            System.err.println("Error retrieving sightings: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+        if (sightingList.isEmpty()) {
+            System.out.println("No sightings found in Firestore.");
+        }
+        DocumentLoader loader = missingRepository.newDocumentLoader();
+        for (SightingModel sighting : sightingList) {
+            loader.load(sighting.getReporterContact());
+        }
+        loader.dispatch();
+        return toSightingDTOs(sightingList, loader);
+    }
+
+    // Sightings of still-active missing pets within radiusKm of the point, newest first;
+    // throws IllegalArgumentException for a bad radius
+    public List<SightingDTO> getSightingsNearby(double latitude, double longitude, double radiusKm, Integer limit) {
+        if (radiusKm <= 0 || radiusKm > maxRadiusKm) {
+            throw new IllegalArgumentException("radiusKm must be between 0 and " + maxRadiusKm);
+        }
+        int radiusMetres = (int) Math.round(radiusKm * 1000);
+        int maxResults = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        List<SightingModel> nearby = new ArrayList<>();
+        try {
+            for (SightingModel sighting : sightingRepository
+                    .findActiveInCells(GeoHash.coveringCells(latitude, longitude, radiusMetres))) {
+                // The covering cells are larger than the circle
+                GeoPoint location = sighting.getSightingLocation();
+                if (location != null && GeoHash.distanceMetres(latitude, longitude, location.getLatitude(),
+                        location.getLongitude()) <= radiusMetres) {
+                    nearby.add(sighting);
+                }
             }
+        } catch (Exception e) {
+            System.err.println("Error retrieving nearby sightings: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+
+        // Reporters and missing pets of every candidate in one batched read
+        DocumentLoader loader = missingRepository.newDocumentLoader();
+        for (SightingModel sighting : nearby) {
+            loader.load(sighting.getReporterContact());
+            loader.load(sighting.getMissingPet());
+        }
+        loader.dispatch();
+        // The flag on the sighting is only a copy, the missing pet itself has the final say
+        nearby.removeIf(sighting -> !isMissingPetActive(sighting, loader));
+
+        nearby.sort(Comparator.comparing(SightingModel::getSightingDateTime,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        if (nearby.size() > maxResults) {
+            nearby = nearby.subList(0, maxResults);
+        }
+        return toSightingDTOs(nearby, loader);
+    }
+
+    // Found pets' sightings drop out of area queries
+    @EventListener
+    public void onMissingPetFound(MissingPetFoundEvent event) {
+        try {
+            sightingRepository.updateActiveForMissingPet(
+                    missingRepository.getMissingDocReferenceByMissingId(event.getMissingPet().getId()), false);
+        } catch (Exception e) {
+            // Still filtered out by the missing pet check, the backfill can repair the flags
+            System.err.println("Error deactivating sightings of missing pet " + event.getMissingPet().getId() + ": "
+                    + e.getMessage());
+        }
+    }
+
+    private static boolean isMissingPetActive(SightingModel sighting, DocumentLoader loader) {
+        try {
+            DocumentSnapshot document = sighting.getMissingPet() != null ? loader.get(sighting.getMissingPet()) : null;
+            return document != null && document.exists() && Boolean.TRUE.equals(document.getBoolean("active"));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // The loader must already hold every reporter
+    private List<SightingDTO> toSightingDTOs(List<SightingModel> sightingList, DocumentLoader loader) {
+        List<SightingDTO> sightingDetailsDTOs = new ArrayList<>();
+        UserModel reporterContact;
+        try {
             for (SightingModel sighting : sightingList) {
                 SightingDTO sightingDetailsDTO = new SightingDTO();
 
@@ -65,14 +161,9 @@ public class SightingService {
                     sightingDetailsDTO.setSightingLocation(location);
                 }
 
-                System.out.println("herew");
-                System.out.println(sighting);
-
                 try {
-                    // Fetch the document snapshot from the reference
-                    ApiFuture<DocumentSnapshot> future = sighting.getReporterContact().get();
-                    DocumentSnapshot document = future.get();
-                    if (document.exists()) {
+                    DocumentSnapshot document = loader.get(sighting.getReporterContact());
+                    if (document != null && document.exists()) {
                         // Convert the document snapshot to a UserModel object
                         reporterContact = document.toObject(UserModel.class);
                     } else {
@@ -100,6 +191,8 @@ public class SightingService {
         // Convert latitude and longitude to GeoPoint
         GeoPoint geoPoint = new GeoPoint(sightingInputDTO.getLatitude(), sightingInputDTO.getLongitude());
         sightingModel.setSightingLocation(geoPoint);
+        sightingModel.setGeohash(GeoHash.encode(sightingInputDTO.getLatitude(), sightingInputDTO.getLongitude(),
+                MissingPetService.GEOHASH_PRECISION));
 
         // Convert date string to Date object
         Date sightingDateTime = sightingInputDTO.getSightingDateTime();
@@ -114,6 +207,7 @@ public class SightingService {
 
         DocumentReference petRef = missingRepository.getMissingDocReferenceByMissingId(sightingInputDTO.getMissingId());
         sightingModel.setMissingPet(petRef);
+        sightingModel.setActive(true);
 
         // upload image to firebase storage
         String imageURL = "missing_pet_sighting/" + sightingInputDTO.getSightingImage().getOriginalFilename();
@@ -0,0 +1,224 @@
+package com.sc2006.petcare.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.sc2006.petcare.DTO.PlaceDetailsDTO;
+import com.sc2006.petcare.models.PetcareAmenityModel;
+import com.sc2006.petcare.repositories.PetcareAmenityRepository;
+import com.sc2006.petcare.utils.GeoHash;
+
+/*
+ * Stale-while-revalidate reads for nearby searches.
+ * Each keyword Google answers is recorded per (tile, keyword), using the same tiles as PlaceTileCache; a shed call
+ * or local fallback records nothing. A keyword whose tile has been searched is answered from the PetcareAmenity
+ * documents stored for the area; amenities stored by searches of other areas don't count, since they would only
+ * cover part of the circle. Tiles searched longer ago than the
+ * soft TTL are refreshed from Google in the background, and tiles never searched or past the hard TTL are fetched
+ * synchronously. Stored amenities past the hard TTL are never served.
+ */
+@Service
+public class StaleWhileRevalidateService {
+    @FunctionalInterface
+    public interface UpstreamSearch {
+        // Adds to `answered` the keywords Google itself answered, rather than a shed call or a local fallback
+        List<PlaceDetailsDTO> search(List<String> keywords, Set<String> answered) throws Exception;
+    }
+
+    @Autowired
+    private PetcareAmenityRepository petcareAmenityRepository;
+
+    @Autowired
+    private SearchCoalescer searchCoalescer;
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    private final boolean enabled;
+    private final long softTtlMillis;
+    private final long hardTtlMillis;
+    // Coalescer keys of refreshes that are queued or running
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    // Tile key -> when the search of that tile and keyword started, least recently used first
+    private final LinkedHashMap<String, Long> searchedTiles;
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong coldKeywordFetches = new AtomicLong();
+    private final AtomicLong hardExpired = new AtomicLong();
+    private final AtomicLong partialCoverage = new AtomicLong();
+    private final AtomicLong unanswered = new AtomicLong();
+    private final AtomicLong refreshesScheduled = new AtomicLong();
+    private final AtomicLong refreshesDropped = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    public StaleWhileRevalidateService(
+            @Value("${petcare.swr.enabled:true}") boolean enabled,
+            @Value("${petcare.swr.soft-ttl-minutes:60}") long softTtlMinutes,
+            @Value("${petcare.swr.hard-ttl-hours:24}") long hardTtlHours,
+            @Value("${petcare.swr.max-searched-tiles:20000}") int maxSearchedTiles) {
+        this.enabled = enabled;
+        this.softTtlMillis = TimeUnit.MINUTES.toMillis(softTtlMinutes);
+        this.hardTtlMillis = TimeUnit.HOURS.toMillis(hardTtlHours);
+        this.searchedTiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxSearchedTiles;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static String category(String keyword) {
+        return keyword.trim().toLowerCase();
+    }
+
+    public List<PlaceDetailsDTO> search(double latitude, double longitude, int radius, List<String> keywords,
+            UpstreamSearch upstream) throws Exception {
+        searches.incrementAndGet();
+        List<PetcareAmenityModel> stored = petcareAmenityRepository
+                .findInCells(GeoHash.coveringCells(latitude, longitude, radius));
+        long now = System.currentTimeMillis();
+
+        Map<String, PlaceDetailsDTO> results = new LinkedHashMap<>();
+        List<String> coldKeywords = new ArrayList<>();
+        List<String> staleKeywords = new ArrayList<>();
+        for (String keyword : keywords) {
+            String category = category(keyword);
+            Long searchedAt = searchedAt(PlaceTileCache.tileKey(latitude, longitude, radius, category));
+            long searchAge = searchedAt == null ? Long.MAX_VALUE : now - searchedAt;
+            if (searchAge > hardTtlMillis) {
+                // Stored amenities may only cover part of the circle, so they can't answer it
+                if (searchedAt == null && hasAmenity(stored, category, latitude, longitude, radius)) {
+                    partialCoverage.incrementAndGet();
+                }
+                coldKeywords.add(keyword);
+                continue;
+            }
+            for (PetcareAmenityModel amenity : stored) {
+                if (!matches(amenity, category, latitude, longitude, radius)) {
+                    continue;
+                }
+                long age = amenity.getTimestamp() == null ? Long.MAX_VALUE : now - amenity.getTimestamp().getTime();
+                if (age > hardTtlMillis) {
+                    hardExpired.incrementAndGet();
+                    continue;
+                }
+                results.putIfAbsent(amenity.getAmenityId(), PlaceDetailsDTO.fromAmenity(amenity));
+            }
+            if (searchAge > softTtlMillis) {
+                staleKeywords.add(keyword);
+            }
+        }
+
+        if (!staleKeywords.isEmpty()) {
+            scheduleRefresh(latitude, longitude, radius, staleKeywords, upstream);
+        }
+        if (coldKeywords.isEmpty()) {
+            localHits.incrementAndGet();
+            return new ArrayList<>(results.values());
+        }
+        // These tiles were never searched or have expired, fetch them now
+        coldKeywordFetches.addAndGet(coldKeywords.size());
+        for (PlaceDetailsDTO place : upstreamSearch(latitude, longitude, radius, coldKeywords, upstream)) {
+            results.putIfAbsent(place.getId(), place);
+        }
+        return new ArrayList<>(results.values());
+    }
+
+    // Search upstream and record the tiles Google answered as searched; shed or fallback keywords stay cold
+    private List<PlaceDetailsDTO> upstreamSearch(double latitude, double longitude, int radius, List<String> keywords,
+            UpstreamSearch upstream) throws Exception {
+        long startedAt = System.currentTimeMillis();
+        Set<String> answered = ConcurrentHashMap.newKeySet();
+        List<PlaceDetailsDTO> places = upstream.search(keywords, answered);
+        unanswered.addAndGet(keywords.size() - answered.size());
+        synchronized (searchedTiles) {
+            for (String keyword : answered) {
+                searchedTiles.put(PlaceTileCache.tileKey(latitude, longitude, radius, category(keyword)), startedAt);
+            }
+        }
+        return places;
+    }
+
+    private Long searchedAt(String tileKey) {
+        synchronized (searchedTiles) {
+            return searchedTiles.get(tileKey);
+        }
+    }
+
+    private static boolean matches(PetcareAmenityModel amenity, String category, double latitude, double longitude,
+            int radius) {
+        return amenity.getCategories() != null && Boolean.TRUE.equals(amenity.getCategories().get(category))
+                && amenity.getLatitude() != null && amenity.getLongitude() != null
+                && GeoHash.distanceMetres(latitude, longitude, amenity.getLatitude(), amenity.getLongitude()) <= radius;
+    }
+
+    private static boolean hasAmenity(List<PetcareAmenityModel> stored, String category, double latitude,
+            double longitude, int radius) {
+        for (PetcareAmenityModel amenity : stored) {
+            if (matches(amenity, category, latitude, longitude, radius)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("searches", searches.get());
+        stats.put("localHits", localHits.get());
+        stats.put("coldKeywordFetches", coldKeywordFetches.get());
+        stats.put("hardExpired", hardExpired.get());
+        stats.put("partialCoverage", partialCoverage.get());
+        stats.put("unanswered", unanswered.get());
+        synchronized (searchedTiles) {
+            stats.put("searchedTiles", searchedTiles.size());
+        }
+        stats.put("refreshesScheduled", refreshesScheduled.get());
+        stats.put("refreshesDropped", refreshesDropped.get());
+        stats.put("refreshFailures", refreshFailures.get());
+        stats.put("refreshesPending", refreshing.size());
+        return stats;
+    }
+
+    private void scheduleRefresh(double latitude, double longitude, int radius, List<String> keywords,
+            UpstreamSearch upstream) {
+        String key = searchCoalescer.key("refresh", latitude, longitude, radius, keywords);
+        if (!refreshing.add(key)) {
+            return; // Already being refreshed
+        }
+        try {
+            executorRegistry.executor(ExecutorRegistry.Pool.BACKGROUND).execute(() -> {
+                try {
+                    // Results are persisted by the upstream search itself
+                    upstreamSearch(latitude, longitude, radius, keywords, upstream);
+                } catch (Exception e) {
+                    refreshFailures.incrementAndGet();
+                    System.err.println("Error refreshing amenities for " + key + ": " + e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+            refreshesScheduled.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            refreshesDropped.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.sc2006.petcare.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.google.cloud.firestore.GeoPoint;
+import com.sc2006.petcare.models.UserModel;
+import com.sc2006.petcare.repositories.UserRepository;
+import com.sc2006.petcare.utils.GeoHash;
+
+/*
+ * Stores each user's geocoded home next to their address, so users near a missing pet can be found with a
+ * geohash range query. An address is geocoded once when it is saved and never again while it is unchanged.
+ */
+@Service
+public class UserHomeLocationService {
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AddressGeocoder addressGeocoder;
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    // Geocode off the request thread after a user's address is saved
+    public void refreshAsync(String userId, String address) {
+        if (userId == null || address == null || address.isBlank()) {
+            return;
+        }
+        try {
+            executorRegistry.executor(ExecutorRegistry.Pool.BACKGROUND).execute(() -> {
+                // Profile updates usually keep the address, and a stored document read is cheaper than a geocode
+                if (!isGeocoded(userId, address)) {
+                    refresh(userId, address);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The backfill picks it up later
+            System.err.println("Skipped geocoding the address of user " + userId + ": background pool is full");
+        }
+    }
+
+    private boolean isGeocoded(String userId, String address) {
+        try {
+            UserModel user = userRepository.getUserById(userId);
+            return user != null && address.equals(user.getGeocodedAddress());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean refresh(String userId, String address) {
+        try {
+            GeoPoint home = addressGeocoder.geocode(address);
+            String geohash = home == null ? null
+                    : GeoHash.encode(home.getLatitude(), home.getLongitude(), MissingPetService.GEOHASH_PRECISION);
+            userRepository.updateHomeLocation(userId, address, home, geohash);
+            return true;
+        } catch (Exception e) {
+            System.err.println("Error geocoding the address of user " + userId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // One-off or periodic: geocode every user whose address changed since it was last geocoded
+    public synchronized Map<String, Object> backfill() throws Exception {
+        long scanned = 0;
+        long upToDate = 0;
+        long geocoded = 0;
+        long failed = 0;
+        for (UserModel user : userRepository.getAllUsers()) {
+            scanned++;
+            String address = user.getAddress();
+            if (address == null || address.isBlank() || address.equals(user.getGeocodedAddress())) {
+                upToDate++;
+                continue;
+            }
+            if (refresh(user.getId(), address)) {
+                geocoded++;
+            } else {
+                failed++;
+            }
+        }
+        System.out.println("Home location backfill geocoded " + geocoded + " of " + scanned + " users");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("scanned", scanned);
+        result.put("upToDate", upToDate);
+        result.put("geocoded", geocoded);
+        result.put("failed", failed);
+        return result;
+    }
+}
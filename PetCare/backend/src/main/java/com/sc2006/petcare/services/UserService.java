@@ -27,6 +27,9 @@ public class UserService {
     @Autowired
     private FirebaseService firebaseService;
 
+    @Autowired
+    private UserHomeLocationService userHomeLocationService;
+
     public String registerUser(UserDetailsDTO userDTO) {
         // Check if the email is already used
         try {
@@ -67,6 +70,7 @@ public class UserService {
             if (savedUser == null) {
                 throw new RuntimeException("User was not saved to Firestore");
             }
+            userHomeLocationService.refreshAsync(user.getId(), user.getAddress());
 
             return "User registered successfully";
             // return savedUser;
@@ -170,7 +174,16 @@ public class UserService {
         }
 
         // Update the user in Firestore
-        return userRepository.updateUser(userModel, userId); // Call the repository to update Firestore
+        String result = userRepository.updateUser(userModel, userId); // Call the repository to update Firestore
+        userHomeLocationService.refreshAsync(userId, userModel.getAddress());
+        return result;
+    }
+
+    public String updatePushToken(String userId, String pushToken) {
+        if (userId == null || userId.trim().isEmpty()) {
+            throw new IllegalArgumentException("'id' must be a non-empty string");
+        }
+        return userRepository.updatePushToken(userId, pushToken);
     }
 
     public void sendPasswordResetEmail(String email) throws FirebaseAuthException {
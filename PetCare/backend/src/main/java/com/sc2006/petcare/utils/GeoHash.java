@@ -0,0 +1,169 @@
+package com.sc2006.petcare.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/* Minimal geohash encoder used to bucket coordinates into map tiles and to range-query stored places */
+public final class GeoHash {
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    // Approximate cell width in metres at the equator for precision 1..12
+    private static final double[] CELL_WIDTH_METRES = {
+            5009400, 1252300, 156500, 39100, 4900, 1200, 152.9, 38.2, 4.8, 1.2, 0.149, 0.037 };
+    private static final double[] CELL_HEIGHT_METRES = {
+            4992600, 624100, 156000, 19500, 4890, 610, 152.4, 19.1, 4.8, 0.6, 0.149, 0.019 };
+    private static final double EARTH_RADIUS_METRES = 6371000;
+
+    private GeoHash() {
+    }
+
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLng = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash.append(BASE32.charAt(ch));
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    // Coarsest precision whose cells are no wider than half the search radius
+    public static int precisionForRadius(int radiusMetres) {
+        for (int precision = 1; precision <= CELL_WIDTH_METRES.length; precision++) {
+            if (CELL_WIDTH_METRES[precision - 1] <= radiusMetres / 2.0) {
+                return precision;
+            }
+        }
+        return CELL_WIDTH_METRES.length;
+    }
+
+    // The cell containing the point plus its eight neighbours, each at least `radiusMetres` across
+    public static List<String> coveringCells(double latitude, double longitude, int radiusMetres) {
+        double lngScale = Math.max(0.01, Math.cos(Math.toRadians(latitude)));
+        int precision = 1;
+        for (int p = CELL_WIDTH_METRES.length; p >= 1; p--) {
+            if (CELL_HEIGHT_METRES[p - 1] >= radiusMetres && CELL_WIDTH_METRES[p - 1] * lngScale >= radiusMetres) {
+                precision = p;
+                break;
+            }
+        }
+        String cell = encode(latitude, longitude, precision);
+        double[] bounds = bounds(cell);
+        double cellHeight = bounds[1] - bounds[0];
+        double cellWidth = bounds[3] - bounds[2];
+        double centreLat = (bounds[0] + bounds[1]) / 2;
+        double centreLng = (bounds[2] + bounds[3]) / 2;
+
+        Set<String> cells = new LinkedHashSet<>();
+        cells.add(cell);
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            for (int dLng = -1; dLng <= 1; dLng++) {
+                double neighbourLat = centreLat + dLat * cellHeight;
+                if (neighbourLat > 90 || neighbourLat < -90) {
+                    continue;
+                }
+                double neighbourLng = centreLng + dLng * cellWidth;
+                if (neighbourLng > 180) {
+                    neighbourLng -= 360;
+                } else if (neighbourLng < -180) {
+                    neighbourLng += 360;
+                }
+                cells.add(encode(neighbourLat, neighbourLng, precision));
+            }
+        }
+        return new ArrayList<>(cells);
+    }
+
+    // Finest set of equal-precision cells covering the box that stays within maxCells
+    public static List<String> cellsInBox(double minLat, double minLng, double maxLat, double maxLng, int maxCells) {
+        for (int precision = CELL_WIDTH_METRES.length; precision >= 1; precision--) {
+            double[] cell = bounds(encode(minLat, minLng, precision));
+            double cellHeight = cell[1] - cell[0];
+            double cellWidth = cell[3] - cell[2];
+            long rows = (long) Math.ceil((maxLat - cell[0]) / cellHeight);
+            long cols = (long) Math.ceil((maxLng - cell[2]) / cellWidth);
+            if (precision > 1 && rows * cols > maxCells) {
+                continue;
+            }
+            Set<String> cells = new LinkedHashSet<>();
+            for (long row = 0; row < Math.max(1, rows); row++) {
+                for (long col = 0; col < Math.max(1, cols); col++) {
+                    double lat = Math.min(cell[0] + (row + 0.5) * cellHeight, 90);
+                    double lng = Math.min(cell[2] + (col + 0.5) * cellWidth, 180);
+                    cells.add(encode(lat, lng, precision));
+                }
+            }
+            return new ArrayList<>(cells);
+        }
+        return new ArrayList<>();
+    }
+
+    // {minLat, maxLat, minLng, maxLng} of a geohash cell
+    public static double[] bounds(String hash) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        boolean evenBit = true;
+        for (int i = 0; i < hash.length(); i++) {
+            int ch = BASE32.indexOf(hash.charAt(i));
+            for (int bit = 4; bit >= 0; bit--) {
+                boolean set = ((ch >> bit) & 1) == 1;
+                if (evenBit) {
+                    double mid = (minLng + maxLng) / 2;
+                    if (set) {
+                        minLng = mid;
+                    } else {
+                        maxLng = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (set) {
+                        minLat = mid;
+                    } else {
+                        maxLat = mid;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[] { minLat, maxLat, minLng, maxLng };
+    }
+
+    // Great-circle distance between two points
+    public static double distanceMetres(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METRES * Math.asin(Math.sqrt(a));
+    }
+}
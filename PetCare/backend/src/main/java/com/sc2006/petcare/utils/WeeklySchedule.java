@@ -0,0 +1,119 @@
+package com.sc2006.petcare.utils;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sc2006.petcare.DTO.DayTimeDTO;
+import com.sc2006.petcare.DTO.PlaceOpeningHoursDTO;
+
+/*
+ * Opening hours compiled into a minute-of-week bitmap (Sunday 00:00 = minute 0, as in Places periods).
+ * Persisted as a sorted [start, end) interval list; open-at checks on the bitmap are O(1).
+ */
+public final class WeeklySchedule {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    private final long[] bits = new long[(MINUTES_PER_WEEK + 63) / 64];
+    private final int openMinutes;
+    private final Integer utcOffsetMinutes;
+
+    public WeeklySchedule(List<Integer> intervals, Integer utcOffsetMinutes) {
+        int minutes = 0;
+        if (intervals != null) {
+            for (int i = 0; i + 1 < intervals.size(); i += 2) {
+                for (int minute = intervals.get(i); minute < intervals.get(i + 1); minute++) {
+                    bits[minute >> 6] |= 1L << minute;
+                    minutes++;
+                }
+            }
+        }
+        this.openMinutes = minutes;
+        this.utcOffsetMinutes = utcOffsetMinutes;
+    }
+
+    public boolean isOpenAt(int minuteOfWeek) {
+        return (bits[minuteOfWeek >> 6] & (1L << minuteOfWeek)) != 0;
+    }
+
+    public boolean isOpenAt(Instant instant) {
+        return isOpenAt(minuteOfWeek(instant, utcOffsetMinutes));
+    }
+
+    public boolean isOpenNow() {
+        return isOpenAt(Instant.now());
+    }
+
+    public boolean isOpen24Hours() {
+        return openMinutes == MINUTES_PER_WEEK;
+    }
+
+    // Compile Places periods into sorted, merged [start, end) minute-of-week pairs
+    public static List<Integer> compileIntervals(List<PlaceOpeningHoursDTO> periods) {
+        List<int[]> ranges = new ArrayList<>();
+        if (periods != null) {
+            for (PlaceOpeningHoursDTO period : periods) {
+                int open = minuteOfWeek(period.getOpen(), false);
+                if (open < 0) {
+                    continue;
+                }
+                if (period.getClose() == null) {
+                    // Places reports "always open" as a single open period without a close
+                    ranges.add(new int[] { 0, MINUTES_PER_WEEK });
+                    continue;
+                }
+                int close = minuteOfWeek(period.getClose(), true);
+                if (close < 0) {
+                    continue;
+                }
+                if (close > open) {
+                    ranges.add(new int[] { open, close });
+                } else {
+                    // Wraps past Saturday midnight
+                    ranges.add(new int[] { open, MINUTES_PER_WEEK });
+                    ranges.add(new int[] { 0, close });
+                }
+            }
+        }
+        ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+        List<Integer> intervals = new ArrayList<>();
+        for (int[] range : ranges) {
+            int last = intervals.size() - 1;
+            if (last > 0 && range[0] <= intervals.get(last)) {
+                intervals.set(last, Math.max(intervals.get(last), range[1]));
+            } else {
+                intervals.add(range[0]);
+                intervals.add(range[1]);
+            }
+        }
+        return intervals;
+    }
+
+    public static int minuteOfWeek(Instant instant, Integer utcOffsetMinutes) {
+        ZoneId zone = utcOffsetMinutes != null ? ZoneOffset.ofTotalSeconds(utcOffsetMinutes * 60)
+                : ZoneId.systemDefault();
+        ZonedDateTime local = instant.atZone(zone);
+        int day = local.getDayOfWeek().getValue() % 7; // Sunday = 0
+        return day * MINUTES_PER_DAY + local.getHour() * 60 + local.getMinute();
+    }
+
+    private static int minuteOfWeek(DayTimeDTO dayTime, boolean isClose) {
+        if (dayTime == null || dayTime.getDay() < 0 || dayTime.getDay() > 6 || dayTime.getTime() == null
+                || !dayTime.getTime().matches("\\d{4}")) {
+            return -1;
+        }
+        int hours = Integer.parseInt(dayTime.getTime().substring(0, 2));
+        int minutes = Integer.parseInt(dayTime.getTime().substring(2));
+        int minuteOfDay = hours * 60 + minutes;
+        // Treat a "2359" close as end of day so back-to-back days merge into one interval
+        if (isClose && minuteOfDay == MINUTES_PER_DAY - 1) {
+            minuteOfDay = MINUTES_PER_DAY;
+        }
+        return dayTime.getDay() * MINUTES_PER_DAY + minuteOfDay;
+    }
+}
@@ -0,0 +1,117 @@
+package com.sc2006.petcare.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.sc2006.petcare.DTO.PlaceSearchResultDTO;
+import com.sc2006.petcare.services.PlacesResponseReader;
+
+/*
+ * Compares the old readLine/StringBuilder/JSONObject path with PlacesResponseReader on a
+ * nearbysearch page. Run main() to get throughput plus allocation rate (gc.alloc.rate.norm)
+ * from the GC profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlacesResponseParsingBenchmark {
+    @Param({ "20", "60" })
+    private int resultsOnPage;
+
+    private byte[] response;
+    private final PlacesResponseReader reader = new PlacesResponseReader();
+
+    @Setup
+    public void buildResponse() {
+        StringBuilder json = new StringBuilder("{\n\"html_attributions\": [],\n\"next_page_token\": \"token\",\n\"results\": [\n");
+        for (int i = 0; i < resultsOnPage; i++) {
+            if (i > 0) {
+                json.append(",\n");
+            }
+            json.append("{\"business_status\": \"OPERATIONAL\",\n")
+                    .append("\"geometry\": {\"location\": {\"lat\": 1.3").append(i).append(", \"lng\": 103.8").append(i)
+                    .append("}, \"viewport\": {\"northeast\": {\"lat\": 1.31, \"lng\": 103.81}, \"southwest\": {\"lat\": 1.29, \"lng\": 103.79}}},\n")
+                    .append("\"icon\": \"https://maps.gstatic.com/mapfiles/place_api/icons/v1/png_71/generic_business-71.png\",\n")
+                    .append("\"name\": \"Pet Clinic ").append(i).append("\",\n")
+                    .append("\"opening_hours\": {\"open_now\": true},\n")
+                    .append("\"photos\": [{\"height\": 3024, \"html_attributions\": [\"<a href=\\\"https://maps.google.com/maps/contrib/1\\\">A</a>\"], ")
+                    .append("\"photo_reference\": \"AWU5eFh").append(i).append("kZ2xhc3NfcGhvdG9fcmVmZXJlbmNlX3BhZGRpbmdfdG9fbWFrZV9pdF9sb25n\", \"width\": 4032}],\n")
+                    .append("\"place_id\": \"ChIJ").append(i).append("abcdefghij\",\n")
+                    .append("\"plus_code\": {\"compound_code\": \"8V2R+XX Singapore\", \"global_code\": \"6PH58V2R+XX\"},\n")
+                    .append("\"rating\": 4.").append(i % 10).append(",\n")
+                    .append("\"reference\": \"ChIJ").append(i).append("abcdefghij\",\n")
+                    .append("\"types\": [\"veterinary_care\", \"point_of_interest\", \"establishment\"],\n")
+                    .append("\"user_ratings_total\": ").append(100 + i).append(",\n")
+                    .append("\"vicinity\": \"").append(i).append(" Example Street, Singapore\"}");
+        }
+        json.append("\n],\n\"status\": \"OK\"\n}\n");
+        response = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<PlaceSearchResultDTO> jsonObjectTree() throws Exception {
+        StringBuilder body = new StringBuilder();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(response)))) {
+            String inputLine;
+            while ((inputLine = in.readLine()) != null) {
+                body.append(inputLine);
+            }
+        }
+        JSONArray places = new JSONObject(body.toString()).getJSONArray("results");
+        List<PlaceSearchResultDTO> results = new ArrayList<>();
+        for (int i = 0; i < Math.min(places.length(), PlacesResponseReader.MAX_RESULTS); i++) {
+            JSONObject place = places.getJSONObject(i);
+            PlaceSearchResultDTO result = new PlaceSearchResultDTO();
+            result.setPlaceId(place.getString("place_id"));
+            result.setName(place.getString("name"));
+            result.setRating(place.optDouble("rating", 0.0));
+            result.setVicinity(place.optString("vicinity"));
+            result.setLatitude(place.optJSONObject("geometry").getJSONObject("location").getDouble("lat"));
+            result.setLongitude(place.optJSONObject("geometry").getJSONObject("location").getDouble("lng"));
+            if (place.has("photos")) {
+                result.setPhotoReference(place.getJSONArray("photos").getJSONObject(0).getString("photo_reference"));
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<PlaceSearchResultDTO> streamingReader() throws Exception {
+        return reader.readSearchResults(new ByteArrayInputStream(response), "vicinity", PlacesResponseReader.MAX_RESULTS);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(PlacesResponseParsingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
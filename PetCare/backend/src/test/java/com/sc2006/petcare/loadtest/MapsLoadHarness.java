@@ -0,0 +1,221 @@
+package com.sc2006.petcare.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.json.JSONObject;
+
+/*
+ * Open-loop load generator for the /api/googlemaps endpoints served by GoogleMapsController.
+ * Requests are issued on a fixed schedule at the target RPS whether or not earlier ones have finished,
+ * and latency is measured from each request's scheduled start so queueing is not hidden.
+ * Prints a latency histogram and percentiles per scenario, and when a PlacesStandInServer is in use,
+ * the number of upstream Places calls per request for each endpoint.
+ *
+ * Example, with the app started with --google.maps.base-url=http://localhost:8089:
+ *   --target http://localhost:8080 --rps 50 --duration-s 60 --scenario mixed --locations 20
+ *   --start-standin true --standin-port 8089 --latency-ms 80 --jitter-ms 40
+ */
+public class MapsLoadHarness {
+    private static final String[] SCENARIOS = { "nearby", "text", "local" };
+    private static final long[] BUCKET_BOUNDS_MS = { 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+    // Singapore, where the app's users are
+    private static final double CENTRE_LAT = 1.3521;
+    private static final double CENTRE_LNG = 103.8198;
+
+    private final String target;
+    private final List<double[]> locations = new ArrayList<>();
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+    private final HttpClient httpClient;
+
+    MapsLoadHarness(String target, int locationCount, long seed) {
+        this.target = target.replaceAll("/$", "");
+        Random random = new Random(seed);
+        for (int i = 0; i < locationCount; i++) {
+            // Within roughly 10 km of the centre
+            locations.add(new double[] { CENTRE_LAT + (random.nextDouble() - 0.5) * 0.18,
+                    CENTRE_LNG + (random.nextDouble() - 0.5) * 0.18 });
+        }
+        for (String scenario : SCENARIOS) {
+            recorders.put(scenario, new Recorder());
+        }
+        this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+    private String path(String scenario, double[] location) {
+        String point = String.format("latitude=%f&longitude=%f", location[0], location[1]);
+        switch (scenario) {
+            case "nearby":
+                return "/api/googlemaps/getNearbyByTypes?" + point + "&radius=1000&type=veterinary_care&type=pet_store";
+            case "text":
+                return "/api/googlemaps/searchLocationByKeyword?" + point + "&radius=5000&keyword=clinic&types=veterinary_care";
+            default:
+                return "/api/googlemaps/local?" + point + "&radius=1000";
+        }
+    }
+
+    void run(String scenario, double rps, long durationSeconds) throws Exception {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rps);
+        long total = (long) (rps * durationSeconds);
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+        Random random = new Random(42);
+        for (long i = 0; i < total; i++) {
+            long scheduled = start + i * intervalNanos;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String requestScenario = "mixed".equals(scenario) ? SCENARIOS[(int) (i % SCENARIOS.length)] : scenario;
+            double[] location = locations.get(random.nextInt(locations.size()));
+            Recorder recorder = recorders.get(requestScenario);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(target + path(requestScenario, location)))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            inFlight.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        long latencyMicros = (System.nanoTime() - scheduled) / 1000;
+                        recorder.record(latencyMicros, error == null && response.statusCode() / 100 == 2);
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.printf("%nSent %d requests in %.1f s (target %.1f RPS, achieved %.1f RPS)%n", total,
+                elapsedMillis / 1000.0, rps, total * 1000.0 / Math.max(1, elapsedMillis));
+    }
+
+    void report(Map<String, Long> upstreamCalls) {
+        long requests = 0;
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            Recorder recorder = entry.getValue();
+            if (recorder.count() == 0) {
+                continue;
+            }
+            requests += recorder.count();
+            System.out.println("\n== " + entry.getKey() + " ==");
+            recorder.print();
+        }
+        if (upstreamCalls == null || requests == 0) {
+            return;
+        }
+        System.out.println("\n== upstream Places calls ==");
+        long totalCalls = 0;
+        for (Map.Entry<String, Long> entry : upstreamCalls.entrySet()) {
+            totalCalls += entry.getValue();
+            System.out.printf("%-14s %8d  (%.2f per request)%n", entry.getKey(), entry.getValue(),
+                    (double) entry.getValue() / requests);
+        }
+        System.out.printf("%-14s %8d  (%.2f per request)%n", "total", totalCalls, (double) totalCalls / requests);
+    }
+
+    private static String get(HttpClient client, String url) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    /* Latencies for one scenario, kept raw for exact percentiles */
+    private static class Recorder {
+        private long[] latencies = new long[1024];
+        private int size;
+        private final AtomicLong failures = new AtomicLong();
+
+        synchronized void record(long latencyMicros, boolean ok) {
+            if (!ok) {
+                failures.incrementAndGet();
+            }
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyMicros;
+        }
+
+        synchronized int count() {
+            return size;
+        }
+
+        synchronized void print() {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            System.out.printf("requests %d, failed %d%n", size, failures.get());
+            System.out.printf("p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, p99.9 %.1f ms, max %.1f ms%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), sorted[sorted.length - 1] / 1000.0);
+            long[] buckets = new long[BUCKET_BOUNDS_MS.length + 1];
+            for (long micros : sorted) {
+                int bucket = 0;
+                while (bucket < BUCKET_BOUNDS_MS.length && micros > BUCKET_BOUNDS_MS[bucket] * 1000) {
+                    bucket++;
+                }
+                buckets[bucket]++;
+            }
+            for (int i = 0; i < buckets.length; i++) {
+                String label = i < BUCKET_BOUNDS_MS.length ? "<= " + BUCKET_BOUNDS_MS[i] + " ms"
+                        : "> " + BUCKET_BOUNDS_MS[BUCKET_BOUNDS_MS.length - 1] + " ms";
+                int bar = (int) Math.round(50.0 * buckets[i] / sorted.length);
+                System.out.printf("%12s %7d %s%n", label, buckets[i], "#".repeat(bar));
+            }
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000.0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = PlacesStandInServer.parseArgs(args);
+        String target = options.getOrDefault("target", "http://localhost:8080");
+        double rps = Double.parseDouble(options.getOrDefault("rps", "20"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration-s", "30"));
+        String scenario = options.getOrDefault("scenario", "mixed");
+        int locationCount = Integer.parseInt(options.getOrDefault("locations", "20"));
+        int standInPort = Integer.parseInt(options.getOrDefault("standin-port", "8089"));
+        String standIn = options.get("standin");
+
+        PlacesStandInServer server = null;
+        if (Boolean.parseBoolean(options.getOrDefault("start-standin", "false"))) {
+            server = new PlacesStandInServer(standInPort, options);
+            server.start();
+            standIn = "http://localhost:" + standInPort;
+        }
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            if (standIn != null) {
+                get(client, standIn + "/standin/reset");
+            }
+            MapsLoadHarness harness = new MapsLoadHarness(target, locationCount, 7);
+            harness.run(scenario, rps, durationSeconds);
+
+            Map<String, Long> upstreamCalls = null;
+            if (standIn != null) {
+                JSONObject stats = new JSONObject(get(client, standIn + "/standin/stats"));
+                upstreamCalls = new LinkedHashMap<>();
+                for (String endpoint : PlacesStandInServer.ENDPOINTS) {
+                    upstreamCalls.put(endpoint, stats.getLong(endpoint));
+                }
+            }
+            harness.report(upstreamCalls);
+            System.out.println("\n== /api/googlemaps/metrics ==");
+            System.out.println(new JSONObject(get(client, target + "/api/googlemaps/metrics")).toString(2));
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.sc2006.petcare.loadtest;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import javax.imageio.ImageIO;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * Local stand-in for the Google Places endpoints used by GoogleMapsService, for load testing without quota or network.
+ * Serves nearbysearch (two pages), textsearch and details from the fixtures under src/test/resources/standin, and a
+ * generated JPEG for photo. "{{seed}}" in a fixture is replaced by a hash of the query so different keywords and
+ * locations return different places, and "{{place_id}}" by the requested place. Latency, HTTP errors and
+ * OVER_QUERY_LIMIT responses can be injected per endpoint. Call counts are served from /standin/stats.
+ *
+ * Run main() and start the app with --google.maps.base-url=http://localhost:8089, for example:
+ *   --port 8089 --latency-ms 80 --jitter-ms 40 --details.error-rate 0.02 --page-token-delay-ms 2000
+ */
+public class PlacesStandInServer {
+    public static final String[] ENDPOINTS = { "nearbysearch", "textsearch", "details", "photo" };
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpServer server;
+    private final Map<String, Behaviour> behaviours = new HashMap<>();
+    private final Map<String, AtomicLong> calls = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> injectedErrors = new ConcurrentHashMap<>();
+    private final Map<String, String> fixtures = new HashMap<>();
+    // next_page_token -> time it was issued, tokens only work after the page token delay like Google's
+    private final Map<String, Long> pageTokens = new ConcurrentHashMap<>();
+    private final long pageTokenDelayMillis;
+    private final byte[] photo;
+    private final ExecutorService executor;
+
+    public PlacesStandInServer(int port, Map<String, String> options) throws IOException {
+        for (String endpoint : ENDPOINTS) {
+            behaviours.put(endpoint, new Behaviour(endpoint, options));
+            calls.put(endpoint, new AtomicLong());
+            injectedErrors.put(endpoint, new AtomicLong());
+        }
+        this.pageTokenDelayMillis = Long.parseLong(options.getOrDefault("page-token-delay-ms", "0"));
+        for (String fixture : new String[] { "nearbysearch", "nearbysearch-page2", "textsearch", "details" }) {
+            fixtures.put(fixture, loadFixture(fixture + ".json"));
+        }
+        this.photo = generatePhoto();
+        this.executor = Executors.newFixedThreadPool(Integer.parseInt(options.getOrDefault("threads", "64")));
+        this.server = HttpServer.create(new InetSocketAddress(port), 512);
+        server.createContext("/maps/api/place/nearbysearch/json", exchange -> handle(exchange, "nearbysearch"));
+        server.createContext("/maps/api/place/textsearch/json", exchange -> handle(exchange, "textsearch"));
+        server.createContext("/maps/api/place/details/json", exchange -> handle(exchange, "details"));
+        server.createContext("/maps/api/place/photo", exchange -> handle(exchange, "photo"));
+        server.createContext("/standin/stats", this::handleStats);
+        server.createContext("/standin/reset", this::handleReset);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Places stand-in listening on port " + server.getAddress().getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public Map<String, Long> callCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String endpoint : ENDPOINTS) {
+            counts.put(endpoint, calls.get(endpoint).get());
+        }
+        return counts;
+    }
+
+    private void handle(HttpExchange exchange, String endpoint) throws IOException {
+        try {
+            calls.get(endpoint).incrementAndGet();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            Behaviour behaviour = behaviours.get(endpoint);
+            behaviour.delay();
+
+            if (behaviour.roll(behaviour.errorRate)) {
+                injectedErrors.get(endpoint).incrementAndGet();
+                send(exchange, 500, "text/plain", "Injected error".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            if (behaviour.roll(behaviour.overLimitRate)) {
+                injectedErrors.get(endpoint).incrementAndGet();
+                sendJson(exchange, "{\"results\": [], \"status\": \"OVER_QUERY_LIMIT\"}");
+                return;
+            }
+            if ("photo".equals(endpoint)) {
+                send(exchange, 200, "image/jpeg", photo);
+                return;
+            }
+            if ("details".equals(endpoint)) {
+                sendJson(exchange, fixtures.get("details").replace("{{place_id}}", query.getOrDefault("place_id", "")));
+                return;
+            }
+
+            String pageToken = query.get("pagetoken");
+            if (pageToken != null) {
+                Long issued = pageTokens.get(pageToken);
+                if (issued == null || System.currentTimeMillis() - issued < pageTokenDelayMillis) {
+                    sendJson(exchange, "{\"results\": [], \"status\": \"INVALID_REQUEST\"}");
+                    return;
+                }
+                String seed = pageToken.substring(pageToken.lastIndexOf('-') + 1);
+                sendJson(exchange, fixtures.get("nearbysearch-page2").replace("{{seed}}", seed));
+                return;
+            }
+            String seed = seed(endpoint, query);
+            String body = fixtures.get(endpoint).replace("{{seed}}", seed);
+            if ("nearbysearch".equals(endpoint)) {
+                pageTokens.put("standin-page-2-" + seed, System.currentTimeMillis());
+            }
+            sendJson(exchange, body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            Map<String, Long> errors = new LinkedHashMap<>();
+            for (String endpoint : ENDPOINTS) {
+                stats.put(endpoint, calls.get(endpoint).get());
+                errors.put(endpoint, injectedErrors.get(endpoint).get());
+            }
+            stats.put("injectedErrors", errors);
+            sendJson(exchange, JSON.writeValueAsString(stats));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleReset(HttpExchange exchange) throws IOException {
+        try {
+            calls.values().forEach(count -> count.set(0));
+            injectedErrors.values().forEach(count -> count.set(0));
+            pageTokens.clear();
+            sendJson(exchange, "{}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void sendJson(HttpExchange exchange, String json) throws IOException {
+        send(exchange, 200, "application/json; charset=UTF-8", json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip") && !contentType.startsWith("image/")) {
+            // Same as Google, text responses are gzipped when the client asks for it
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Stable per query, so repeated searches return the same places
+    private static String seed(String endpoint, Map<String, String> query) {
+        String key = endpoint + "|" + query.getOrDefault("location", "") + "|" + query.getOrDefault("radius", "")
+                + "|" + query.getOrDefault("keyword", "") + "|" + query.getOrDefault("query", "")
+                + "|" + query.getOrDefault("type", "");
+        return Integer.toHexString(key.hashCode());
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static String loadFixture(String name) throws IOException {
+        try (InputStream in = PlacesStandInServer.class.getResourceAsStream("/standin/" + name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture standin/" + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // A 400x300 JPEG, about the size of a maxwidth=400 Places photo
+    private static byte[] generatePhoto() throws IOException {
+        BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        for (int y = 0; y < 300; y += 20) {
+            for (int x = 0; x < 400; x += 20) {
+                graphics.setColor(new Color((x * 7 + y * 3) % 256, (x + y * 5) % 256, (x * 3 + y) % 256));
+                graphics.fillRect(x, y, 20, 20);
+            }
+        }
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    /* Injected behaviour for one endpoint, "--<endpoint>.<option>" overrides "--<option>" */
+    private static class Behaviour {
+        final long latencyMillis;
+        final long jitterMillis;
+        final double errorRate;
+        final double overLimitRate;
+
+        Behaviour(String endpoint, Map<String, String> options) {
+            latencyMillis = Long.parseLong(option(options, endpoint, "latency-ms", "0"));
+            jitterMillis = Long.parseLong(option(options, endpoint, "jitter-ms", "0"));
+            errorRate = Double.parseDouble(option(options, endpoint, "error-rate", "0"));
+            overLimitRate = Double.parseDouble(option(options, endpoint, "over-limit-rate", "0"));
+        }
+
+        void delay() {
+            long millis = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+            if (millis > 0) {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        boolean roll(double rate) {
+            return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+        }
+
+        private static String option(Map<String, String> options, String endpoint, String name, String fallback) {
+            return options.getOrDefault(endpoint + "." + name, options.getOrDefault(name, fallback));
+        }
+    }
+
+    // "--name value" pairs, shared with the load harness
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        new PlacesStandInServer(Integer.parseInt(options.getOrDefault("port", "8089")), options).start();
+    }
+}
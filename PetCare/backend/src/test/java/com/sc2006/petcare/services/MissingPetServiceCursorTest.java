@@ -0,0 +1,64 @@
+package com.sc2006.petcare.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.cloud.Timestamp;
+import com.sc2006.petcare.models.MissingPetModel;
+
+class MissingPetServiceCursorTest {
+    private static String base64(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MissingPetModel missing(String id, long seconds, int nanos) {
+        MissingPetModel missing = new MissingPetModel();
+        missing.setId(id);
+        missing.setPublishedTime(Timestamp.ofTimeSecondsAndNanos(seconds, nanos));
+        return missing;
+    }
+
+    @Test
+    void cursorRoundTrips() {
+        String cursor = MissingPetService.encodeCursor(missing("abc123", 1704542400L, 123456789));
+
+        assertArrayEquals(new String[] { "1704542400", "123456789", "abc123" }, MissingPetService.decodeCursor(cursor));
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        String cursor = MissingPetService.encodeCursor(missing("??>>~~", 1704542400L, 0));
+
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+    }
+
+    @Test
+    void idMayContainSeparator() {
+        String cursor = MissingPetService.encodeCursor(missing("a:b", 1, 2));
+
+        assertArrayEquals(new String[] { "1", "2", "a:b" }, MissingPetService.decodeCursor(cursor));
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> MissingPetService.decodeCursor("not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> MissingPetService.decodeCursor(base64("1704542400:0")));
+        assertThrows(IllegalArgumentException.class, () -> MissingPetService.decodeCursor(base64("1704542400:0:")));
+    }
+
+    @Test
+    void cursorWithBadTimestampIsRejectedBeforeQuerying() {
+        // The repository is never reached for a cursor that doesn't parse
+        MissingPetService service = new MissingPetService(null);
+
+        assertThrows(IllegalArgumentException.class, () -> service.getAllMissingPets(10, base64("soon:0:abc123")));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getAllMissingPets(10, base64("1704542400:2000000000:abc123")));
+    }
+}
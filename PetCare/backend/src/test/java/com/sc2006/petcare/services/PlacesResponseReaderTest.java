@@ -0,0 +1,196 @@
+package com.sc2006.petcare.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.sc2006.petcare.DTO.PlaceDetailsDTO;
+import com.sc2006.petcare.DTO.PlaceSearchPageDTO;
+import com.sc2006.petcare.DTO.PlaceSearchResultDTO;
+import com.sc2006.petcare.utils.WeeklySchedule;
+
+class PlacesResponseReaderTest {
+    private final PlacesResponseReader reader = new PlacesResponseReader();
+
+    // A stand-in server fixture with its placeholders filled in
+    private static InputStream fixture(String name) throws IOException {
+        try (InputStream in = PlacesResponseReaderTest.class.getResourceAsStream("/standin/" + name + ".json")) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8)
+                    .replace("{{seed}}", "t")
+                    .replace("{{place_id}}", "standin-t-0");
+            return json(body);
+        }
+    }
+
+    private static InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static PlaceSearchResultDTO searchResult(String placeId) {
+        PlaceSearchResultDTO result = new PlaceSearchResultDTO();
+        result.setPlaceId(placeId);
+        result.setName("Clinic");
+        return result;
+    }
+
+    @Test
+    void readsNearbySearchPage() throws IOException {
+        PlaceSearchPageDTO page = reader.readSearchPage(fixture("nearbysearch"), "vicinity", Integer.MAX_VALUE);
+
+        assertEquals(20, page.getResults().size());
+        assertEquals("OK", page.getStatus());
+        assertEquals("standin-page-2-t", page.getNextPageToken());
+        PlaceSearchResultDTO first = page.getResults().get(0);
+        assertEquals("standin-t-0", first.getPlaceId());
+        assertEquals("t Animal Clinic 0", first.getName());
+        assertEquals(3.5, first.getRating());
+        assertEquals("10 Orchard Road, Singapore", first.getVicinity());
+        assertEquals(1.3, first.getLatitude());
+        assertEquals(103.83, first.getLongitude());
+        assertEquals("standin-photo-t-0", first.getPhotoReference());
+        assertFalse(first.isOpenNow());
+    }
+
+    @Test
+    void readsTextSearchAddress() throws IOException {
+        List<PlaceSearchResultDTO> results = reader.readSearchResults(fixture("textsearch"), "formatted_address",
+                PlacesResponseReader.MAX_RESULTS);
+
+        assertEquals(PlacesResponseReader.MAX_RESULTS, results.size());
+        assertFalse(results.get(0).getVicinity().isEmpty());
+    }
+
+    @Test
+    void stopsReadingAtMaxResults() throws IOException {
+        // Truncated after the second result, only readable if the parser stops there
+        String truncated = "{\"next_page_token\": \"next\", \"results\": ["
+                + "{\"place_id\": \"a\", \"name\": \"A\"}, {\"place_id\": \"b\", \"name\": \"B\"}, {\"place_id\": ";
+
+        PlaceSearchPageDTO page = reader.readSearchPage(json(truncated), "vicinity", 2);
+
+        assertEquals(2, page.getResults().size());
+        assertEquals("next", page.getNextPageToken());
+        assertEquals("OK", page.getStatus());
+        assertThrows(IOException.class, () -> reader.readSearchPage(json(truncated), "vicinity", 3));
+    }
+
+    @Test
+    void earlyExitKeepsStatusReadBeforeResults() {
+        String body = "{\"status\": \"OVER_QUERY_LIMIT\", \"results\": [{\"place_id\": \"a\", \"name\": \"A\"}]}";
+
+        assertThrows(PlacesQuotaGovernor.QuotaExceededException.class,
+                () -> reader.readSearchPage(json(body), "vicinity", 1));
+    }
+
+    @Test
+    void overQueryLimitThrows() {
+        String body = "{\"results\": [], \"status\": \"OVER_QUERY_LIMIT\"}";
+
+        assertThrows(PlacesQuotaGovernor.QuotaExceededException.class,
+                () -> reader.readSearchResults(json(body), "vicinity", PlacesResponseReader.MAX_RESULTS));
+        assertThrows(PlacesQuotaGovernor.QuotaExceededException.class,
+                () -> reader.readDetails(json("{\"status\": \"OVER_QUERY_LIMIT\"}"), searchResult("a")));
+    }
+
+    @Test
+    void zeroResultsAndErrorStatusesReturnAnEmptyPage() throws IOException {
+        PlaceSearchPageDTO zero = reader.readSearchPage(json("{\"results\": [], \"status\": \"ZERO_RESULTS\"}"),
+                "vicinity", PlacesResponseReader.MAX_RESULTS);
+        assertTrue(zero.getResults().isEmpty());
+        assertEquals("ZERO_RESULTS", zero.getStatus());
+
+        PlaceSearchPageDTO denied = reader.readSearchPage(
+                json("{\"error_message\": \"Bad key\", \"results\": [], \"status\": \"REQUEST_DENIED\"}"),
+                "vicinity", PlacesResponseReader.MAX_RESULTS);
+        assertTrue(denied.getResults().isEmpty());
+        assertEquals("REQUEST_DENIED", denied.getStatus());
+        assertNull(denied.getNextPageToken());
+    }
+
+    @Test
+    void resultWithoutOptionalFieldsUsesDefaults() throws IOException {
+        String body = "{\"results\": [{\"place_id\": \"a\", \"name\": \"A\", \"types\": [\"pet_store\"]}], "
+                + "\"status\": \"OK\"}";
+
+        PlaceSearchResultDTO result = reader.readSearchResults(json(body), "vicinity", 10).get(0);
+
+        assertFalse(result.isOpenNow());
+        assertNull(result.getPhotoReference());
+        assertEquals(0, result.getLatitude());
+        assertEquals(0, result.getLongitude());
+        assertEquals("", result.getVicinity());
+        PlaceDetailsDTO basic = reader.basicDetails(result);
+        assertNull(basic.getPhotoUrl());
+        assertEquals(-1, basic.getOpeningHours().get(0).getOpen().getDay());
+    }
+
+    @Test
+    void resultWithoutPlaceIdIsRejected() {
+        String body = "{\"results\": [{\"name\": \"A\"}], \"status\": \"OK\"}";
+
+        assertThrows(IOException.class, () -> reader.readSearchResults(json(body), "vicinity", 10));
+    }
+
+    @Test
+    void readsDetailsPeriods() throws IOException {
+        PlaceSearchResultDTO place = searchResult("standin-t-0");
+        place.setPhotoReference("standin-photo-t-0");
+
+        PlaceDetailsDTO details = reader.readDetails(fixture("details"), place);
+
+        assertEquals("6123 4567", details.getPhoneNumber());
+        assertEquals("https://example.com/standin-t-0", details.getWebsite());
+        assertTrue(details.isOpenNow());
+        assertEquals(480, details.getUtcOffsetMinutes());
+        assertEquals(PlacePhotoService.photoUrl("standin-photo-t-0"), details.getPhotoUrl());
+        assertEquals(7, details.getOpeningHours().size());
+        List<Integer> expected = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            expected.add(day * WeeklySchedule.MINUTES_PER_DAY + 9 * 60);
+            expected.add(day * WeeklySchedule.MINUTES_PER_DAY + 21 * 60);
+        }
+        assertEquals(expected, details.getOpeningIntervals());
+    }
+
+    @Test
+    void detailsWithoutOpeningHoursKeepsSnapshotOnly() throws IOException {
+        String body = "{\"result\": {\"utc_offset_minutes\": -300}, \"status\": \"OK\"}";
+
+        PlaceDetailsDTO details = reader.readDetails(json(body), searchResult("a"));
+
+        assertNull(details.getOpeningIntervals());
+        assertEquals(-1, details.getOpeningHours().get(0).getOpen().getDay());
+        assertEquals("N/A", details.getPhoneNumber());
+        assertEquals("N/A", details.getWebsite());
+        assertEquals(-300, details.getUtcOffsetMinutes());
+    }
+
+    @Test
+    void detailsOpenWithoutCloseIsAlwaysOpen() throws IOException {
+        String body = "{\"result\": {\"opening_hours\": {\"open_now\": true, "
+                + "\"periods\": [{\"open\": {\"day\": 0, \"time\": \"0000\"}}]}}, \"status\": \"OK\"}";
+
+        PlaceDetailsDTO details = reader.readDetails(json(body), searchResult("a"));
+
+        assertEquals(List.of(0, WeeklySchedule.MINUTES_PER_WEEK), details.getOpeningIntervals());
+    }
+
+    @Test
+    void detailsWithoutResultThrows() {
+        IOException error = assertThrows(IOException.class,
+                () -> reader.readDetails(json("{\"status\": \"NOT_FOUND\"}"), searchResult("a")));
+
+        assertTrue(error.getMessage().contains("NOT_FOUND"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.sc2006.petcare.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.sc2006.petcare.DTO.PlaceDetailsDTO;
+
+class SearchCoalescerTest {
+    private static final String KEY = "nearby|w21z|250|vet";
+
+    private final SearchCoalescer coalescer = new SearchCoalescer(250);
+    private final ExecutorService threads = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void stopThreads() {
+        threads.shutdownNow();
+    }
+
+    private static PlaceDetailsDTO place(String id) {
+        return new PlaceDetailsDTO(id, id, 0, null, false, null, 0, 0, null, null, null);
+    }
+
+    // Poll a stat until it reaches the value, so the test only releases the leader once the follower is waiting
+    private void awaitStat(String name, long value) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (((Number) coalescer.stats().get(name)).longValue() != value) {
+            assertTrue(System.currentTimeMillis() < deadline, name + " never reached " + value);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void keyIgnoresTermOrderAndCase() {
+        assertEquals(coalescer.key("nearby", 1.3521, 103.8198, 1000, List.of("Vet", " groomer")),
+                coalescer.key("nearby", 1.3521, 103.8198, 1000, List.of("groomer", "vet")));
+    }
+
+    @Test
+    void keyBucketsNearbyRadii() {
+        assertEquals(coalescer.key("nearby", 1.3521, 103.8198, 240, List.of("vet")),
+                coalescer.key("nearby", 1.3521, 103.8198, 260, List.of("vet")));
+        assertNotEquals(coalescer.key("nearby", 1.3521, 103.8198, 250, List.of("vet")),
+                coalescer.key("nearby", 1.3521, 103.8198, 1000, List.of("vet")));
+        assertNotEquals(coalescer.key("nearby", 1.3521, 103.8198, 250, List.of("vet")),
+                coalescer.key("text", 1.3521, 103.8198, 250, List.of("vet")));
+    }
+
+    @Test
+    void concurrentIdenticalSearchesShareOneCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Callable<List<PlaceDetailsDTO>> search = () -> {
+            calls.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(place("a"), place("b"));
+        };
+
+        Future<List<PlaceDetailsDTO>> leader = threads.submit(() -> coalescer.execute(KEY, search));
+        awaitStat("inFlight", 1);
+        Future<List<PlaceDetailsDTO>> follower = threads.submit(() -> coalescer.execute(KEY, search));
+        awaitStat("coalesced", 1);
+        release.countDown();
+
+        List<PlaceDetailsDTO> leaderResult = leader.get(5, TimeUnit.SECONDS);
+        List<PlaceDetailsDTO> followerResult = follower.get(5, TimeUnit.SECONDS);
+        assertEquals(1, calls.get());
+        assertEquals(leaderResult, followerResult);
+        // Each caller gets its own list to modify
+        assertNotSame(leaderResult, followerResult);
+        assertEquals(0, ((Number) coalescer.stats().get("inFlight")).intValue());
+    }
+
+    @Test
+    void failureReachesFollowersAndIsNotCached() throws Exception {
+        IOException failure = new IOException("upstream down");
+        CountDownLatch release = new CountDownLatch(1);
+        Callable<List<PlaceDetailsDTO>> failing = () -> {
+            release.await(5, TimeUnit.SECONDS);
+            throw failure;
+        };
+
+        Future<List<PlaceDetailsDTO>> leader = threads.submit(() -> coalescer.execute(KEY, failing));
+        awaitStat("inFlight", 1);
+        Future<List<PlaceDetailsDTO>> follower = threads.submit(() -> coalescer.execute(KEY, failing));
+        awaitStat("coalesced", 1);
+        release.countDown();
+
+        assertSame(failure, assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+        assertSame(failure, assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS)).getCause());
+        // The next caller searches again instead of getting the old failure
+        assertEquals(List.of(place("c")), coalescer.execute(KEY, () -> List.of(place("c"))));
+        assertEquals(2L, coalescer.stats().get("leaders"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.sc2006.petcare.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class GeoHashTest {
+    private static final double METRES_PER_DEGREE = 111195;
+
+    @Test
+    void encodeMatchesKnownHash() {
+        assertEquals("u4pruydqqvj", GeoHash.encode(57.64911, 10.40744, 11));
+        assertEquals("w21z", GeoHash.encode(1.3521, 103.8198, 4));
+    }
+
+    @Test
+    void boundsContainEncodedPoint() {
+        double[] bounds = GeoHash.bounds(GeoHash.encode(1.3521, 103.8198, 7));
+
+        assertTrue(bounds[0] <= 1.3521 && 1.3521 < bounds[1]);
+        assertTrue(bounds[2] <= 103.8198 && 103.8198 < bounds[3]);
+    }
+
+    @Test
+    void coveringCellsCoverTheRadius() {
+        double latitude = 1.3521;
+        double longitude = 103.8198;
+        int radius = 2000;
+        List<String> cells = GeoHash.coveringCells(latitude, longitude, radius);
+
+        assertEquals(9, cells.size());
+        int precision = cells.get(0).length();
+        assertEquals(GeoHash.encode(latitude, longitude, precision), cells.get(0));
+        for (int bearing = 0; bearing < 360; bearing += 10) {
+            double dLat = radius * 0.99 * Math.cos(Math.toRadians(bearing)) / METRES_PER_DEGREE;
+            double dLng = radius * 0.99 * Math.sin(Math.toRadians(bearing))
+                    / (METRES_PER_DEGREE * Math.cos(Math.toRadians(latitude)));
+            String cell = GeoHash.encode(latitude + dLat, longitude + dLng, precision);
+            assertTrue(cells.contains(cell), "bearing " + bearing + " is outside " + cells);
+        }
+    }
+
+    @Test
+    void coveringCellsWrapTheAntimeridian() {
+        List<String> cells = GeoHash.coveringCells(0.5, 179.999, 5000);
+
+        assertEquals(9, cells.size());
+        assertTrue(cells.stream().anyMatch(cell -> GeoHash.bounds(cell)[2] < 0));
+    }
+
+    @Test
+    void coveringCellsSkipRowsPastThePole() {
+        List<String> cells = GeoHash.coveringCells(89.999, 0, 5000);
+
+        assertEquals(6, cells.size());
+        assertEquals(cells.size(), new HashSet<>(cells).size());
+    }
+
+    @Test
+    void cellsInBoxReturnsEveryRowAndColumn() {
+        // A box spanning parts of 2 rows and 3 columns of precision 5 cells
+        double[] origin = GeoHash.bounds(GeoHash.encode(1.3521, 103.8198, 5));
+        double height = origin[1] - origin[0];
+        double width = origin[3] - origin[2];
+        double minLat = origin[0] + height * 0.25;
+        double maxLat = origin[0] + height * 1.75;
+        double minLng = origin[2] + width * 0.25;
+        double maxLng = origin[2] + width * 2.75;
+
+        List<String> cells = GeoHash.cellsInBox(minLat, minLng, maxLat, maxLng, 6);
+
+        assertEquals(6, cells.size());
+        for (int row = 0; row < 2; row++) {
+            for (int col = 0; col < 3; col++) {
+                String cell = GeoHash.encode(origin[0] + (row + 0.5) * height, origin[2] + (col + 0.5) * width, 5);
+                assertTrue(cells.contains(cell), "row " + row + " col " + col + " is missing");
+            }
+        }
+    }
+
+    @Test
+    void cellsInBoxPicksFinestPrecisionWithinLimit() {
+        double minLat = 1.28, minLng = 103.80, maxLat = 1.32, maxLng = 103.86;
+        int maxCells = 30;
+
+        List<String> cells = GeoHash.cellsInBox(minLat, minLng, maxLat, maxLng, maxCells);
+
+        assertTrue(cells.size() <= maxCells);
+        int precision = cells.get(0).length();
+        assertTrue(cells.stream().allMatch(cell -> cell.length() == precision));
+        Set<String> finer = new HashSet<>();
+        for (int i = 0; i <= 100; i++) {
+            for (int j = 0; j <= 100; j++) {
+                double lat = minLat + (maxLat - minLat) * i / 100;
+                double lng = minLng + (maxLng - minLng) * j / 100;
+                assertTrue(cells.contains(GeoHash.encode(lat, lng, precision)));
+                finer.add(GeoHash.encode(lat, lng, precision + 1));
+            }
+        }
+        assertTrue(finer.size() > maxCells);
+    }
+
+    @Test
+    void cellsInBoxOfAPointIsOneCell() {
+        assertEquals(List.of(GeoHash.encode(1.3521, 103.8198, 12)),
+                GeoHash.cellsInBox(1.3521, 103.8198, 1.3521, 103.8198, 1));
+    }
+}
@@ -0,0 +1,97 @@
+package com.sc2006.petcare.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.sc2006.petcare.DTO.DayTimeDTO;
+import com.sc2006.petcare.DTO.PlaceOpeningHoursDTO;
+
+class WeeklyScheduleTest {
+    private static final int DAY = WeeklySchedule.MINUTES_PER_DAY;
+    // A Saturday, 2024-01-06 20:00 UTC
+    private static final Instant SATURDAY_EVENING_UTC = Instant.parse("2024-01-06T20:00:00Z");
+
+    private static PlaceOpeningHoursDTO period(int openDay, String openTime, int closeDay, String closeTime) {
+        return new PlaceOpeningHoursDTO(new DayTimeDTO(openDay, openTime), new DayTimeDTO(closeDay, closeTime));
+    }
+
+    @Test
+    void periodPastMidnightStaysOneInterval() {
+        // Friday 20:00 to Saturday 02:00
+        List<Integer> intervals = WeeklySchedule.compileIntervals(List.of(period(5, "2000", 6, "0200")));
+
+        assertEquals(List.of(5 * DAY + 20 * 60, 6 * DAY + 2 * 60), intervals);
+        WeeklySchedule schedule = new WeeklySchedule(intervals, 0);
+        assertFalse(schedule.isOpenAt(5 * DAY + 20 * 60 - 1));
+        assertTrue(schedule.isOpenAt(6 * DAY));
+        assertTrue(schedule.isOpenAt(6 * DAY + 2 * 60 - 1));
+        assertFalse(schedule.isOpenAt(6 * DAY + 2 * 60));
+    }
+
+    @Test
+    void periodPastSaturdayMidnightWrapsToSunday() {
+        // Saturday 22:00 to Sunday 02:00
+        List<Integer> intervals = WeeklySchedule.compileIntervals(List.of(period(6, "2200", 0, "0200")));
+
+        assertEquals(List.of(0, 2 * 60, 6 * DAY + 22 * 60, WeeklySchedule.MINUTES_PER_WEEK), intervals);
+        WeeklySchedule schedule = new WeeklySchedule(intervals, 0);
+        assertTrue(schedule.isOpenAt(0));
+        assertTrue(schedule.isOpenAt(WeeklySchedule.MINUTES_PER_WEEK - 1));
+        assertFalse(schedule.isOpenAt(2 * 60));
+        assertFalse(schedule.isOpenAt(6 * DAY + 22 * 60 - 1));
+        assertFalse(schedule.isOpen24Hours());
+    }
+
+    @Test
+    void backToBackDaysEndingAt2359Merge() {
+        List<Integer> intervals = WeeklySchedule.compileIntervals(List.of(
+                period(2, "0000", 2, "2359"),
+                period(1, "0000", 1, "2359")));
+
+        assertEquals(List.of(DAY, 3 * DAY), intervals);
+        assertTrue(new WeeklySchedule(intervals, 0).isOpenAt(2 * DAY - 1));
+    }
+
+    @Test
+    void openWithoutCloseIsAlwaysOpen() {
+        PlaceOpeningHoursDTO alwaysOpen = new PlaceOpeningHoursDTO(new DayTimeDTO(0, "0000"), null);
+        List<Integer> intervals = WeeklySchedule.compileIntervals(List.of(alwaysOpen));
+
+        assertEquals(List.of(0, WeeklySchedule.MINUTES_PER_WEEK), intervals);
+        assertTrue(new WeeklySchedule(intervals, null).isOpen24Hours());
+    }
+
+    @Test
+    void malformedPeriodsAreSkipped() {
+        List<Integer> intervals = WeeklySchedule.compileIntervals(List.of(
+                period(7, "0900", 7, "1700"),
+                period(1, "9am", 1, "1700"),
+                period(1, "0900", 1, "1700")));
+
+        assertEquals(List.of(DAY + 9 * 60, DAY + 17 * 60), intervals);
+    }
+
+    @Test
+    void minuteOfWeekUsesUtcOffset() {
+        assertEquals(6 * DAY + 20 * 60, WeeklySchedule.minuteOfWeek(SATURDAY_EVENING_UTC, 0));
+        // UTC+8 is already Sunday 04:00
+        assertEquals(4 * 60, WeeklySchedule.minuteOfWeek(SATURDAY_EVENING_UTC, 480));
+        // UTC-5 is Saturday 15:00
+        assertEquals(6 * DAY + 15 * 60, WeeklySchedule.minuteOfWeek(SATURDAY_EVENING_UTC, -300));
+    }
+
+    @Test
+    void isOpenAtChecksLocalTime() {
+        // Sunday 00:00 to 06:00 local
+        List<Integer> intervals = WeeklySchedule.compileIntervals(List.of(period(0, "0000", 0, "0600")));
+
+        assertTrue(new WeeklySchedule(intervals, 480).isOpenAt(SATURDAY_EVENING_UTC));
+        assertFalse(new WeeklySchedule(intervals, 0).isOpenAt(SATURDAY_EVENING_UTC));
+    }
+}
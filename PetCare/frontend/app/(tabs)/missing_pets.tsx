@@ -42,6 +42,10 @@ const colors = [
   "cyan",
 ];
 
+const NEARBY_RADIUS_KM = 10;
+// Server maximum (petcare.missing.max-page-size), the default of 50 would drop cases in busy areas
+const NEARBY_LIMIT = 200;
+
 export default function MissingPets() {
   const [location, setLocation] = useState<Location.LocationObject | null>(
     null
@@ -55,20 +59,25 @@ export default function MissingPets() {
   
   const userId = auth.currentUser?.uid;
 
-  const fetchMissingPetData = async () => {
+  const fetchMissingPetData = async (coords: Location.LocationObjectCoords) => {
     setLoading(true);
     console.log("updating data in missing")
     try {
+      // Only cases around the user, newest first
       const response = await axios.get(
-        `http://10.91.144.154:8080/api/missing/getAllMissingPets`
+        `http://10.91.144.154:8080/api/missing/getMissingPetsNearby`,
+        {
+          params: {
+            latitude: coords.latitude,
+            longitude: coords.longitude,
+            radiusKm: NEARBY_RADIUS_KM,
+            limit: NEARBY_LIMIT,
+          },
+        }
       );
+      const missingPets: any[] = response.data ?? [];
       
-      // console.log(response.data.map((pet: Pet) => pet.petName));
-      // console.log("here");
-      // console.log(response.data[0].missingPet.petName);
-      // console.log(response.data[0].owner);
-      
-      const petsData = response.data.map((pet: any) => ({
+      const petsData = missingPets.map((pet: any) => ({
         id: pet.id,
         name: pet.missingPet.petName,
         latitude: pet.lastSeenLocation.latitude,
@@ -113,8 +122,10 @@ export default function MissingPets() {
 
   useFocusEffect(
     useCallback(() => {
-      fetchMissingPetData();
-    }, [])
+      if (location) {
+        fetchMissingPetData(location.coords);
+      }
+    }, [location])
   );
 
   // If location is not available, render a loading message or error message
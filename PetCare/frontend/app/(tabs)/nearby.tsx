@@ -39,7 +39,8 @@ type PlaceDTO = {
   rating: number;
   phoneNumber: string;
   website: string;
-  photoBase64?: string;
+  photoUrl?: string;
+  photoUrls?: { pin: string; card: string; detail: string };
   openNow: boolean;
   openingHours: PlaceOpeningHoursPeriodDetail[] | null;
   vicinity: string;
@@ -400,10 +401,12 @@ const Nearby = () => {
             </Text>
           )}
         </View>
-        {item.photoBase64 ? (
+        {item.photoUrl ? (
           <Image
             style={styles.cardImage}
-            source={{ uri: `data:image/jpeg;base64,${item.photoBase64}` }}
+            source={{
+              uri: `http://10.91.144.154:8080${item.photoUrls?.card ?? item.photoUrl}`,
+            }}
           />
         ) : (
           <Image
@@ -600,11 +603,11 @@ const Nearby = () => {
             <View style={styles.placeModalContainer}>
               <View style={styles.placeModalCard}>
                 {/* Clinic Image */}
-                {selectedPlace.photoBase64 ? (
+                {selectedPlace.photoUrl ? (
                   <Image
                     style={styles.placeModalImage}
                     source={{
-                      uri: `data:image/jpeg;base64,${selectedPlace.photoBase64}`,
+                      uri: `http://10.91.144.154:8080${selectedPlace.photoUrls?.detail ?? selectedPlace.photoUrl}`,
                     }}
                   />
                 ) : (